@@ -0,0 +1,40 @@
+package gameoflife;
+
+import java.util.Random;
+
+/**
+ * Shared set-up for the benchmarks
+ * @author thomdikdave
+ */
+final class BenchmarkStates {
+    private BenchmarkStates(){}
+
+    /**
+     * @return a state of the given size with each cell alive with probability <code>density</code>. The same
+     * arguments always give the same state.
+     */
+    static GameState random(int width, int height, double density, long seed){
+        GameState out = new GameState(width, height);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextDouble() < density) out.setValueAtPoint(true, x, y);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param name "flat" or "torus"
+     */
+    static GameModel.GameGeometry geometry(String name){
+        switch (name) {
+            case "flat":
+                return GameModel.makeGeometry(GameModel.Geometry_EuclideanFlat);
+            case "torus":
+                return GameModel.makeGeometry(GameModel.Geometry_EuclideanTorus);
+            default:
+                throw new AssertionError();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package gameoflife;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for one generation through each engine, driven by a double-buffered <code>Simulation</code> as the
+ * model drives it. The board is reloaded before every iteration, so engines that follow activity (HashLife,
+ * Sparse, NeighbourCount) are measured on a board that is still evolving. Conway's rule, which the bitwise
+ * engines apply directly, is compared with HighLife, which they apply through the rule's compiled count
+ * functions.
+ * @author thomdikdave
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"cellwise", "bitwise", "parallel", "hashlife", "sparse", "neighbourcount", "stabletiles"})
+    String engine;
+
+    @Param({"256", "1024"})
+    int size;
+
+    @Param({"0.05", "0.35"})
+    double density;
+
+    @Param({"flat", "torus"})
+    String geometry;
+
+    @Param({"B3/S23", "B36/S23"})
+    String rule;
+
+    GameState start;
+    Simulation simulation;
+
+    @Setup
+    public void setUp(){
+        start = BenchmarkStates.random(size, size, density, 1);
+        int eng = BatchRunner.parseEngine(engine);
+        simulation = new Simulation(start, BenchmarkStates.geometry(geometry),
+                GameModel.makeEngine(eng, Runtime.getRuntime().availableProcessors()));
+        simulation.setRule(Rule.parse(rule));
+    }
+
+    @Setup(Level.Iteration)
+    public void reload(){
+        simulation.load(start);
+    }
+
+    @TearDown
+    public void tearDown(){
+        simulation.dispose();
+    }
+
+    @Benchmark
+    public GameState step(){
+        simulation.step();
+        return simulation.getCurrentState();
+    }
+}
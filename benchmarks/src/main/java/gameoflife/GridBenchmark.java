@@ -0,0 +1,86 @@
+package gameoflife;
+
+import java.awt.Point;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to visit every point of a <code>Grid</code> (by <code>Point</code>, and by index), to visit the live cells
+ * of a state and add them into a <code>ByteGrid</code> of counts, and to set a state on a <code>GameGrid</code>,
+ * which compares it with the cells drawn a word at a time and redraws the words that differ into its single
+ * image (alternating between two states, so every call changes cells).
+ * @author thomdikdave
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GridBenchmark {
+    @Param({"64", "150", "256"})
+    int size;
+
+    @Param({"0.05", "0.35"})
+    double density;
+
+    Grid<Object> grid;
+    ByteGrid counts;
+    GameGrid gameGrid;
+    GameState[] states;
+    int turn;
+
+    @Setup
+    public void setUp(){
+        grid = new Grid<>(size, size);
+        grid.populateGrid(() -> new Object());
+        states = new GameState[]{
+            BenchmarkStates.random(size, size, density, 1),
+            BenchmarkStates.random(size, size, density, 2)
+        };
+        counts = new ByteGrid(size, size);
+        gameGrid = new GameGrid(states[0].size);
+        gameGrid.setColorScheme(new ColorScheme(null, java.awt.Color.BLACK));
+    }
+
+    @Benchmark
+    public void iteratePoints(Blackhole bh){
+        for (Iterator<Point> it = grid.iteratePoints(); it.hasNext();) {
+            bh.consume(grid.getValueAtPoint(it.next()));
+        }
+    }
+
+    @Benchmark
+    public void iterateIndices(Blackhole bh){
+        int cells = size * size;
+        for (int i = 0; i < cells; i++) {
+            bh.consume(grid.getValueAtIndex(i));
+        }
+    }
+
+    @Benchmark
+    public ByteGrid addLiveCells(){
+        GameState state = states[0];
+        for (int i = state.nextLiveCell(0); i >= 0; i = state.nextLiveCell(i + 1)) {
+            counts.addAtIndex(1, i);
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public void setState(){
+        gameGrid.setState(states[turn ^= 1]);
+    }
+}
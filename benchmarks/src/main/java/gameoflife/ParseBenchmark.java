@@ -0,0 +1,71 @@
+package gameoflife;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to read and write states in the '*' / '-' text format and in RLE.
+ * @author thomdikdave
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    @Param({"64", "256", "1024"})
+    int size;
+
+    @Param({"0.05", "0.35"})
+    double density;
+
+    GameState state;
+    String text;
+    String rle;
+
+    @Setup
+    public void setUp(){
+        state = BenchmarkStates.random(size, size, density, 1);
+        text = state.toString();
+        rle = this.toRLE();
+    }
+
+    @Benchmark
+    public GameState readStateFromString(){
+        return GameState.readStateFromString(text);
+    }
+
+    @Benchmark
+    public String toText(){
+        return state.toString();
+    }
+
+    @Benchmark
+    public GameState readRLE(){
+        return GameState.readStateFromString(rle);
+    }
+
+    @Benchmark
+    public String toRLE(){
+        StringWriter out = new StringWriter();
+        try {
+            PatternIO.writeRLE(state, out);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package gameoflife;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time for one generation of a square grid, through <code>GameState</code>'s own cell-by-cell rules and
+ * through each engine.
+ * @author thomdikdave
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepBenchmark {
+    @Param({"64", "256", "1024"})
+    int size;
+
+    @Param({"0.05", "0.35"})
+    double density;
+
+    @Param({"flat", "torus"})
+    String geometry;
+
+    GameState current;
+    GameState next;
+    GameModel.GameGeometry geo;
+    int[] columns;
+    int[] rows;
+
+    @Setup
+    public void setUp(){
+        current = BenchmarkStates.random(size, size, density, 1);
+        next = new GameState(size, size);
+        geo = BenchmarkStates.geometry(geometry);
+        columns = geo.columnTable(size);
+        rows = geo.rowTable(size);
+    }
+
+    @Benchmark
+    public GameState getNextGenerationState(){
+        return current.getNextGenerationState(geo);
+    }
+
+    @Benchmark
+    public GameState getNextGenerationStateInto(){
+        current.getNextGenerationState(geo, next);
+        return next;
+    }
+
+    /**
+     * Neighbour counts of every cell, through the geometry's lookup tables
+     */
+    @Benchmark
+    public int countLives(){
+        int out = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                out += current.countLives(x, y, columns, rows);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Neighbour counts of every cell, through the geometry's adjacent points
+     */
+    @Benchmark
+    public void countLivesOfAdjacentPoints(Blackhole bh){
+        java.awt.Dimension dimension = current.size;
+        java.awt.Point p = new java.awt.Point();
+        for (p.y = 0; p.y < size; p.y++) {
+            for (p.x = 0; p.x < size; p.x++) {
+                bh.consume(current.countLives(geo.getAdjacentPoint(p, dimension)));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package gameoflife;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for one generation of a dense board through the Vector API engine, against the cellwise rules and the
+ * 64-bit word engine. Built only with Java 16 or later (the <code>vector</code> profile), and forked with the
+ * incubator module added; fails rather than measure the bitwise fallback if the Vector API is not available.
+ * @author thomdikdave
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VectorBenchmark {
+    @Param({"cellwise", "bitwise", "vector"})
+    String engine;
+
+    @Param({"256", "1024", "4096"})
+    int size;
+
+    @Param({"flat", "torus"})
+    String geometry;
+
+    @Param({"B3/S23", "B36/S23"})
+    String rule;
+
+    GameState start;
+    GameState current;
+    GameState next;
+    GameModel.GameGeometry geo;
+    GameEngine eng;
+
+    @Setup
+    public void setUp(){
+        if (engine.equals("vector") && !GameModel.isVectorEngineAvailable()) {
+            throw new IllegalStateException("The Vector API engine is not available");
+        }
+        start = BenchmarkStates.random(size, size, 0.35, 1);
+        geo = BenchmarkStates.geometry(geometry);
+        eng = GameModel.makeEngine(BatchRunner.parseEngine(engine), 1);
+        eng.setRule(Rule.parse(rule));
+    }
+
+    @Setup(Level.Iteration)
+    public void reload(){
+        current = (GameState)start.clone();
+        next = new GameState(size, size);
+    }
+
+    @Benchmark
+    public GameState step(){
+        eng.nextGeneration(current, next, geo);
+        GameState out = next;
+        next = current;
+        current = out;
+        return out;
+    }
+}
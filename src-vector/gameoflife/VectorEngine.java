@@ -0,0 +1,193 @@
+package gameoflife;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Engine that steps a row several words at a time with the Vector API: 512 cells per operation with AVX-512,
+ * 256 with AVX2. Each word is stepped as in <code>BitwiseEngine</code>, the neighbour words formed by shifting
+ * the rows above, below and the row itself and their counts summed with bit-sliced adders, but on a vector of
+ * consecutive words at once, the bits shifted in across word boundaries coming from the same vectors loaded
+ * a word to the left and to the right. The first and last words of each row, which meet the edges or wrap
+ * around, are stepped one at a time by <code>BitwiseEngine.stepWord</code>, as are the others on rows too short
+ * to fill a vector; on longer rows the words left over are stepped as one last vector overlapping the one
+ * before.
+ * <p>This class is built from its own source directory, with Java 16 or later and
+ * <code>--add-modules jdk.incubator.vector</code>, and the JVM must be started with the same option to use it.
+ * <code>GameModel</code> loads it by name, falling back to <code>BitwiseEngine</code> when it is missing.</p>
+ * @author thomdikdave
+ */
+class VectorEngine implements GameEngine {
+    private static final VectorSpecies<Long> species = LongVector.SPECIES_PREFERRED;
+
+    private long[] emptyRow = new long[0];
+    private Rule rule = Rule.conway;
+    /**
+     * The leaves of the birth and survival count functions, as in <code>Rule</code>: for counts 2i and 2i+1,
+     * entry 2i holds the first and entry 2i+1 the XOR of the two, and entry 8 the leaf for a count of 8
+     */
+    private final long[] births = new long[9];
+    private final long[] survivals = new long[9];
+
+    VectorEngine(){
+        this.setRule(Rule.conway);
+    }
+
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = rule;
+        leaves(rule.getBirthMask(), births);
+        leaves(rule.getSurvivalMask(), survivals);
+    }
+
+    private static void leaves(int counts, long[] out){
+        for (int count = 0; count < 8; count += 2) {
+            long even = (counts & (1 << count)) != 0 ? -1L : 0;
+            long odd = (counts & (1 << (count + 1))) != 0 ? -1L : 0;
+            out[count] = even;
+            out[count + 1] = even ^ odd;
+        }
+        out[8] = (counts & (1 << 8)) != 0 ? -1L : 0;
+    }
+
+    /**
+     * @return the number of cells stepped per vector operation
+     */
+    static int cellsPerOperation(){
+        return species.length() * 64;
+    }
+
+    @Override
+    public void nextGeneration(GameState current, GameState next, GameModel.GameGeometry geo) {
+        int width = current.size.width;
+        int height = current.size.height;
+        int wpr = current.wordsPerRow;
+        if (wpr == 0) return;
+        int[] columns = geo.columnTable(width);
+        if (!BitwiseEngine.isWordCompatible(columns, width)) {
+            current.getNextGenerationState(geo, rule, next);
+            return;
+        }
+        boolean wrap = columns[0] >= 0;
+        int[] rows = geo.rowTable(height);
+        if (emptyRow.length < wpr) {
+            emptyRow = new long[wpr];
+        }
+        int lanes = species.length();
+        long[] in = current.words;
+        long[] out = next.words;
+        for (int y = 0; y < height; y++) {
+            int north = rows[y];
+            int south = rows[y + 2];
+            long[] nRow = north < 0 ? emptyRow : in;
+            int nOff = north < 0 ? 0 : north * wpr;
+            long[] sRow = south < 0 ? emptyRow : in;
+            int sOff = south < 0 ? 0 : south * wpr;
+            int cOff = y * wpr;
+
+            out[cOff] = BitwiseEngine.stepWord(current, y, 0, north, south, wrap, emptyRow, rule);
+            int i = 1;
+            for (; i + lanes < wpr; i += lanes) {
+                this.stepWords(nRow, nOff + i, in, cOff + i, sRow, sOff + i, out);
+            }
+            if (i > 1 && i < wpr - 1) {
+                // The words left over, as the last vector of the row, overlapping words already stepped
+                i = wpr - 1 - lanes;
+                this.stepWords(nRow, nOff + i, in, cOff + i, sRow, sOff + i, out);
+                i = wpr - 1;
+            }
+            for (; i < wpr; i++) {
+                out[cOff + i] = BitwiseEngine.stepWord(current, y, i, north, south, wrap, emptyRow, rule);
+            }
+        }
+    }
+
+    /**
+     * Steps the words from <code>c</code> in the centre row, which have words on either side in the same row,
+     * writing them to <code>out</code> at the same offset
+     * @param n offset of the same words of the row above in <code>nRow</code>
+     * @param s offset of the same words of the row below in <code>sRow</code>
+     */
+    private void stepWords(long[] nRow, int n, long[] in, int c, long[] sRow, int s, long[] out){
+        LongVector north = LongVector.fromArray(species, nRow, n);
+        LongVector centre = LongVector.fromArray(species, in, c);
+        LongVector south = LongVector.fromArray(species, sRow, s);
+        LongVector nw = west(north, LongVector.fromArray(species, nRow, n - 1));
+        LongVector ne = east(north, LongVector.fromArray(species, nRow, n + 1));
+        LongVector w = west(centre, LongVector.fromArray(species, in, c - 1));
+        LongVector e = east(centre, LongVector.fromArray(species, in, c + 1));
+        LongVector sw = west(south, LongVector.fromArray(species, sRow, s - 1));
+        LongVector se = east(south, LongVector.fromArray(species, sRow, s + 1));
+
+        // Full adders over the rows above and below, half adder over the middle row
+        LongVector nSum = nw.lanewise(VectorOperators.XOR, north).lanewise(VectorOperators.XOR, ne);
+        LongVector nCarry = nw.and(north).or(ne.and(nw.lanewise(VectorOperators.XOR, north)));
+        LongVector sSum = sw.lanewise(VectorOperators.XOR, south).lanewise(VectorOperators.XOR, se);
+        LongVector sCarry = sw.and(south).or(se.and(sw.lanewise(VectorOperators.XOR, south)));
+        LongVector mSum = w.lanewise(VectorOperators.XOR, e);
+        LongVector mCarry = w.and(e);
+
+        // Count bit 0, and a carry into the twos
+        LongVector ones = nSum.lanewise(VectorOperators.XOR, sSum).lanewise(VectorOperators.XOR, mSum);
+        LongVector onesCarry = nSum.and(sSum).or(mSum.and(nSum.lanewise(VectorOperators.XOR, sSum)));
+
+        // Four inputs into the twos, giving count bit 1 and two carries into the fours
+        LongVector t = nCarry.lanewise(VectorOperators.XOR, sCarry).lanewise(VectorOperators.XOR, mCarry);
+        LongVector tCarry = nCarry.and(sCarry).or(mCarry.and(nCarry.lanewise(VectorOperators.XOR, sCarry)));
+        LongVector twos = t.lanewise(VectorOperators.XOR, onesCarry);
+        LongVector twosCarry = t.and(onesCarry);
+
+        LongVector result;
+        if (rule == Rule.conway) {
+            // Any count of 4 or more dies; otherwise 3 lives, and 2 keeps a living cell alive
+            LongVector fourOrMore = tCarry.or(twosCarry);
+            result = twos.lanewise(VectorOperators.AND_NOT, fourOrMore).and(ones.or(centre));
+        }else{
+            // The two carries into the fours give count bits 2 and 3
+            LongVector c2 = tCarry.lanewise(VectorOperators.XOR, twosCarry);
+            LongVector c3 = tCarry.and(twosCarry);
+            LongVector born = evaluate(births, ones, twos, c2, c3);
+            LongVector surviving = evaluate(survivals, ones, twos, c2, c3);
+            result = select(born, surviving, centre);
+        }
+        result.intoArray(out, c);
+    }
+
+    /**
+     * @return the words shifted so each bit holds its western neighbour, <code>before</code> being the same
+     * words loaded one word earlier
+     */
+    private static LongVector west(LongVector words, LongVector before){
+        return words.lanewise(VectorOperators.LSHL, 1).or(before.lanewise(VectorOperators.LSHR, 63));
+    }
+
+    /**
+     * @return the words shifted so each bit holds its eastern neighbour, <code>after</code> being the same
+     * words loaded one word later
+     */
+    private static LongVector east(LongVector words, LongVector after){
+        return words.lanewise(VectorOperators.LSHR, 1).or(after.lanewise(VectorOperators.LSHL, 63));
+    }
+
+    /**
+     * @return the bits of <code>whenSet</code> where <code>selector</code> is set, and of <code>whenClear</code>
+     * elsewhere
+     */
+    private static LongVector select(LongVector whenClear, LongVector whenSet, LongVector selector){
+        return whenClear.lanewise(VectorOperators.XOR, whenClear.lanewise(VectorOperators.XOR, whenSet).and(selector));
+    }
+
+    /**
+     * Evaluates a count function (see <code>Rule</code>) on the bits of the counts
+     */
+    private static LongVector evaluate(long[] leaves, LongVector c0, LongVector c1, LongVector c2, LongVector c3){
+        LongVector m0 = c0.and(leaves[1]).lanewise(VectorOperators.XOR, leaves[0]);
+        LongVector m1 = c0.and(leaves[3]).lanewise(VectorOperators.XOR, leaves[2]);
+        LongVector m2 = c0.and(leaves[5]).lanewise(VectorOperators.XOR, leaves[4]);
+        LongVector m3 = c0.and(leaves[7]).lanewise(VectorOperators.XOR, leaves[6]);
+        LongVector lowCounts = select(select(m0, m1, c1), select(m2, m3, c1), c2);
+        // Bit 3 is set only for a count of 8, when the other bits are clear
+        return select(lowCounts, LongVector.broadcast(species, leaves[8]), c3);
+    }
+}
@@ -0,0 +1,299 @@
+package gameoflife;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+
+/**
+ * Runs a game from the command line without any Swing components, for long runs and for measuring engines:
+ * <pre>
+ * java -cp GameOfLife.jar gameoflife.BatchRunner [options] pattern.txt
+ * </pre>
+ * The pattern is read in the '*' / '-' text format the game saves in or in RLE (see <code>PatternIO</code>), or
+ * from a binary <code>BoardSnapshot</code>, which also gives the starting generation and, unless
+ * <code>-geometry</code> is given, the geometry. The rule is the one given with <code>-rule</code>, otherwise
+ * the one named by an RLE pattern or snapshot, otherwise Conway's. After the run the final state is written to
+ * standard output in the text format (in RLE with <code>-rle</code>), or with <code>-o</code> to a file in the
+ * format of its extension, and the generations per second and cell updates per second are reported on standard
+ * error. Loading and writing are not included in the timings.
+ * <p>With <code>-engine hashlife</code> on the unbounded plane, the run is made of power-of-two jumps
+ * (see <code>Simulation.jump</code>), so the cell update rate counts cells of the grid that were never visited
+ * one generation at a time.</p>
+ * <p>With <code>-cycles</code>, the run watches for the board settling into a still life or oscillator (see
+ * <code>Simulation.setDetectsCycles</code>). <code>stop</code> ends the run at the first repeated generation;
+ * <code>skip</code> skips the whole periods left in the run and steps only the remainder, so a settled board
+ * reaches any generation at once. Either way the period found is reported.</p>
+ * @author thomdikdave
+ */
+public class BatchRunner {
+    static final String usage =
+            "Usage: java -cp GameOfLife.jar gameoflife.BatchRunner [options] pattern.txt\n"
+          + "  -n <generations>    number of generations to run (default 1000)\n"
+          + "  -geometry <name>    flat, torus or plane (default flat)\n"
+          + "  -engine <name>      cellwise, bitwise, parallel, hashlife, sparse,\n"
+          + "                      neighbourcount, vector or stabletiles (default bitwise)\n"
+          + "  -rule <rule>        rule in B/S notation, such as B36/S23 (default: the pattern's, or B3/S23)\n"
+          + "  -threads <count>    thread count for the parallel engine (default: available processors)\n"
+          + "  -o <file>           file to write the final state to, as RLE if named *.rle or as a\n"
+          + "                      snapshot if named *." + BoardSnapshot.extension + " (default: standard output)\n"
+          + "  -cycles <action>    stop or skip once the board repeats itself (default: keep stepping)\n"
+          + "  -rle                write the final state to standard output as RLE\n"
+          + "  -q                  do not write the final state";
+
+    private long generations = 1000;
+    private int geometry = GameModel.Geometry_EuclideanFlat;
+    private boolean geometryGiven = false;
+    private int engine = GameModel.Engine_Bitwise;
+    private Rule rule;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String inputPath;
+    private String outputPath;
+    private boolean quiet = false;
+    private boolean rle = false;
+    private int cycles = Cycles_Ignore;
+
+    public static final int Cycles_Ignore = 0;
+    public static final int Cycles_Stop = 1;
+    public static final int Cycles_Skip = 2;
+
+    public static void main(String[] args) {
+        BatchRunner runner = new BatchRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(usage);
+            System.exit(2);
+        }
+        try {
+            runner.run(System.err);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    //------------------------------------------------------
+    //-------Arguments-------
+    //------------------------------------------------------
+
+    /**
+     * Takes the options and pattern file from the command line arguments
+     * @throws IllegalArgumentException if an option is unknown, is missing its value or has an invalid one,
+     * or no pattern file is given
+     */
+    public void parseArguments(String[] args){
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-n":
+                    generations = parseCount(arg, value(args, ++i));
+                    break;
+                case "-geometry":
+                    geometry = parseGeometry(value(args, ++i));
+                    geometryGiven = true;
+                    break;
+                case "-engine":
+                    engine = parseEngine(value(args, ++i));
+                    break;
+                case "-rule":
+                    rule = parseRule(value(args, ++i));
+                    break;
+                case "-threads":
+                    threads = (int)Math.min(parseCount(arg, value(args, ++i)), Integer.MAX_VALUE);
+                    if (threads < 1) throw new IllegalArgumentException("Thread count must be at least 1");
+                    break;
+                case "-o":
+                    outputPath = value(args, ++i);
+                    break;
+                case "-q":
+                    quiet = true;
+                    break;
+                case "-cycles":
+                    cycles = parseCycles(value(args, ++i));
+                    break;
+                case "-rle":
+                    rle = true;
+                    break;
+                default:
+                    if (arg.startsWith("-") || inputPath != null) {
+                        throw new IllegalArgumentException("Unexpected argument: " + arg);
+                    }
+                    inputPath = arg;
+            }
+        }
+        if (inputPath == null) throw new IllegalArgumentException("No pattern file given");
+    }
+
+    private static String value(String[] args, int i){
+        if (i >= args.length) throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        return args[i];
+    }
+
+    private static long parseCount(String option, String value){
+        try {
+            long out = Long.parseLong(value);
+            if (out >= 0) return out;
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+    }
+
+    static int parseGeometry(String name){
+        switch (name) {
+            case "flat":
+                return GameModel.Geometry_EuclideanFlat;
+            case "torus":
+                return GameModel.Geometry_EuclideanTorus;
+            case "plane":
+                return GameModel.Geometry_UnboundedPlane;
+            default:
+                throw new IllegalArgumentException("Unknown geometry: " + name);
+        }
+    }
+
+    static int parseEngine(String name){
+        switch (name) {
+            case "cellwise":
+                return GameModel.Engine_Cellwise;
+            case "bitwise":
+                return GameModel.Engine_Bitwise;
+            case "parallel":
+                return GameModel.Engine_Parallel;
+            case "hashlife":
+                return GameModel.Engine_HashLife;
+            case "sparse":
+                return GameModel.Engine_Sparse;
+            case "neighbourcount":
+                return GameModel.Engine_NeighbourCount;
+            case "vector":
+                return GameModel.Engine_Vector;
+            case "stabletiles":
+                return GameModel.Engine_StableTiles;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+
+    static Rule parseRule(String notation){
+        try {
+            return Rule.parse(notation);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for -rule: " + e.getMessage());
+        }
+    }
+
+    static int parseCycles(String name){
+        switch (name) {
+            case "stop":
+                return Cycles_Stop;
+            case "skip":
+                return Cycles_Skip;
+            default:
+                throw new IllegalArgumentException("Unknown cycle action: " + name);
+        }
+    }
+
+    //------------------------------------------------------
+    //-------Running-------
+    //------------------------------------------------------
+
+    void run(PrintStream report) throws IOException{
+        File input = new File(inputPath);
+        GameState state;
+        long firstGeneration = 0;
+        Rule patternRule;
+        if (BoardSnapshot.isSnapshotFile(input)) {
+            BoardSnapshot snapshot = BoardSnapshot.read(input);
+            state = snapshot.state;
+            firstGeneration = snapshot.generation;
+            patternRule = snapshot.rule;
+            if (!geometryGiven && snapshot.geometry != GameModel.Geometry_Custom) geometry = snapshot.geometry;
+        }else{
+            state = PatternIO.read(input);
+            patternRule = PatternIO.readRule(input);
+        }
+        if (rule == null) rule = patternRule != null ? patternRule : Rule.conway;
+        if (engine == GameModel.Engine_Vector && !GameModel.isVectorEngineAvailable()) {
+            report.println("Vector API not available (run with --add-modules jdk.incubator.vector); using the bitwise engine");
+        }
+        Simulation simulation = new Simulation(state, GameModel.makeGeometry(geometry), GameModel.makeEngine(engine, threads));
+        simulation.setRule(rule);
+        simulation.load(state, firstGeneration);
+        simulation.setDetectsCycles(cycles != Cycles_Ignore);
+
+        long start = System.nanoTime();
+        long advanced = advance(simulation, generations, cycles);
+        long elapsed = System.nanoTime() - start;
+        simulation.dispose();
+
+        GameState result = simulation.getCurrentState();
+        double seconds = elapsed / 1e9;
+        double cells = (double)result.size.width * result.size.height;
+        report.printf("%d x %d grid, %d generations of %s in %.3f s%n", result.size.width, result.size.height,
+                advanced, rule, seconds);
+        report.printf("%.1f generations/s, %.4g cell updates/s%n", advanced / seconds,
+                advanced * cells / seconds);
+        report.printf("%d live cells%n", result.countLiveCells());
+        if (simulation.getPeriod() > 0) {
+            report.printf("Repeats with period %d at generation %d%n", simulation.getPeriod(),
+                    simulation.getGeneration());
+        }
+
+        if (quiet) return;
+        if (outputPath != null) {
+            File output = new File(outputPath);
+            if (BoardSnapshot.isSnapshotFile(output)) {
+                new BoardSnapshot(result, geometry, simulation.getGeneration(), rule).write(output);
+            }else{
+                PatternIO.write(result, rule, output);
+            }
+            return;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out));
+        if (rle) {
+            PatternIO.writeRLE(result, rule, writer);
+        }else{
+            PatternIO.writePlainText(result, writer);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Advances <code>simulation</code> by <code>generations</code>: in power-of-two jumps where the engine
+     * supports them and the geometry is unbounded, otherwise one generation at a time, acting on the first
+     * repeated generation found by stopping there for <code>Cycles_Stop</code>, or skipping the whole periods
+     * left for <code>Cycles_Skip</code>. The simulation must be detecting cycles for either to take effect.
+     * @return the generations advanced, fewer than <code>generations</code> if stopped
+     */
+    public static long advance(Simulation simulation, long generations, int cycles){
+        if (simulation.canJump() && simulation.getGeometry().isUnbounded()) {
+            for (int k = 0; generations >>> k != 0; k++) {
+                if ((generations >>> k & 1) != 0) simulation.jump(k);
+            }
+            return generations;
+        }
+        for (long i = 0; i < generations; i++) {
+            simulation.step();
+            int period = simulation.getPeriod();
+            if (period == 0) continue;
+            switch (cycles) {
+                case Cycles_Ignore:
+                    break;
+                case Cycles_Stop:
+                    return i + 1;
+                case Cycles_Skip:
+                    long periods = (generations - i - 1) / period;
+                    simulation.skipCycles(periods);
+                    i += periods * period;
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+        return generations;
+    }
+}
@@ -0,0 +1,205 @@
+package gameoflife;
+
+/**
+ * Engine that advances 64 cells at a time. For each word of a row, the eight neighbour words are formed by
+ * shifting the rows above, below and the row itself, and the neighbour counts are summed with bit-sliced
+ * full adders, so each bit of the four count words holds one bit of the count of the corresponding cell.
+ * Conway's rule is applied to the counts directly; other rules through the masks compiled by <code>Rule</code>.
+ * <p>The board is stepped from a <code>HaloBuffer</code>, so the loop over the words has no edges to check,
+ * unless the geometry maps rows in a way a halo cannot follow, when each row is stepped with
+ * <code>stepRow</code>.</p>
+ * @author thomdikdave
+ */
+class BitwiseEngine implements GameEngine {
+    private long[] emptyRow = new long[0];
+    private final HaloBuffer halo = new HaloBuffer();
+    private Rule rule = Rule.conway;
+
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = rule;
+    }
+
+    @Override
+    public void nextGeneration(GameState current, GameState next, GameModel.GameGeometry geo) {
+        int width = current.size.width;
+        int height = current.size.height;
+        if (current.wordsPerRow == 0) return;
+        int[] columns = geo.columnTable(width);
+        if (!isWordCompatible(columns, width)) {
+            current.getNextGenerationState(geo, rule, next);
+            return;
+        }
+        boolean wrap = columns[0] >= 0;
+        int[] rows = geo.rowTable(height);
+        if (HaloBuffer.isHaloCompatible(rows, height)) {
+            halo.load(current, wrap, rows[0] >= 0);
+            halo.step(next, 0, height, rule);
+            return;
+        }
+        if (emptyRow.length < current.wordsPerRow) {
+            emptyRow = new long[current.wordsPerRow];
+        }
+        for (int y = 0; y < height; y++) {
+            stepRow(current, next, y, rows[y], rows[y + 2], wrap, emptyRow, rule);
+        }
+    }
+    
+    /**
+     * Word-parallel stepping shifts whole rows, so it can only follow geometries whose columns either end at 
+     * the edges or wrap around to the opposite edge. Rows may be mapped arbitrarily.
+     * @param columns column table of the geometry
+     * @param width grid width
+     * @return true if the columns can be stepped a word at a time
+     */
+    static boolean isWordCompatible(int[] columns, int width){
+        for (int x = 0; x < width; x++) {
+            if (columns[x + 1] != x) return false;
+        }
+        return (columns[0] == -1 && columns[width + 1] == -1)
+                || (columns[0] == width - 1 && columns[width + 1] == 0);
+    }
+
+    /**
+     * Writes row <code>y</code> of the next generation into <code>next</code>.
+     * @param north index of the row above <code>y</code>, or -1 if there is none
+     * @param south index of the row below <code>y</code>, or -1 if there is none
+     * @param wrapX whether the first and last columns are adjacent
+     * @param emptyRow a zeroed array at least <code>wordsPerRow</code> long, standing in for missing rows
+     * @param rule the rule to apply
+     */
+    static void stepRow(GameState current, GameState next, int y, int north, int south, boolean wrapX, long[] emptyRow, Rule rule){
+        final long[] in = current.words;
+        final long[] out = next.words;
+        final int wpr = current.wordsPerRow;
+        final int last = wpr - 1;
+        final int edge = (current.size.width - 1) & 63;
+        final long lastMask = -1L >>> (-current.size.width & 63);
+
+        final long[] nRow = north < 0 ? emptyRow : in;
+        final int nOff = north < 0 ? 0 : north * wpr;
+        final long[] sRow = south < 0 ? emptyRow : in;
+        final int sOff = south < 0 ? 0 : south * wpr;
+        final int cOff = y * wpr;
+
+        // Carry bits shifted in at the left of the first word and the right of the last word
+        long nCarry = wrapX ? (nRow[nOff + last] >>> edge) & 1 : 0;
+        long cCarry = wrapX ? (in[cOff + last] >>> edge) & 1 : 0;
+        long sCarry = wrapX ? (sRow[sOff + last] >>> edge) & 1 : 0;
+        final long nEnd = wrapX ? (nRow[nOff] & 1) << edge : 0;
+        final long cEnd = wrapX ? (in[cOff] & 1) << edge : 0;
+        final long sEnd = wrapX ? (sRow[sOff] & 1) << edge : 0;
+
+        long n = nRow[nOff];
+        long c = in[cOff];
+        long s = sRow[sOff];
+        for (int i = 0; i < wpr; i++) {
+            long nNext, cNext, sNext, nE, cE, sE;
+            if (i < last) {
+                nNext = nRow[nOff + i + 1];
+                cNext = in[cOff + i + 1];
+                sNext = sRow[sOff + i + 1];
+                nE = (n >>> 1) | (nNext << 63);
+                cE = (c >>> 1) | (cNext << 63);
+                sE = (s >>> 1) | (sNext << 63);
+            }else{
+                nNext = cNext = sNext = 0;
+                nE = (n >>> 1) | nEnd;
+                cE = (c >>> 1) | cEnd;
+                sE = (s >>> 1) | sEnd;
+            }
+            long nW = (n << 1) | nCarry;
+            long cW = (c << 1) | cCarry;
+            long sW = (s << 1) | sCarry;
+
+            long result = nextCells(rule, c, nW, n, nE, cW, cE, sW, s, sE);
+            out[cOff + i] = i < last ? result : result & lastMask;
+
+            nCarry = n >>> 63;
+            cCarry = c >>> 63;
+            sCarry = s >>> 63;
+            n = nNext;
+            c = cNext;
+            s = sNext;
+        }
+    }
+
+    /**
+     * Calculates a single word of the next generation: word <code>i</code> of row <code>y</code>.
+     * @param north index of the row above <code>y</code>, or -1 if there is none
+     * @param south index of the row below <code>y</code>, or -1 if there is none
+     * @param wrapX whether the first and last columns are adjacent
+     * @param emptyRow a zeroed array at least <code>wordsPerRow</code> long, standing in for missing rows
+     * @param rule the rule to apply
+     * @return the next generation of the 64 cells
+     */
+    static long stepWord(GameState current, int y, int i, int north, int south, boolean wrapX, long[] emptyRow, Rule rule){
+        final long[] in = current.words;
+        final int wpr = current.wordsPerRow;
+        final int edge = (current.size.width - 1) & 63;
+        final long[] nRow = north < 0 ? emptyRow : in;
+        final int nOff = north < 0 ? 0 : north * wpr;
+        final long[] sRow = south < 0 ? emptyRow : in;
+        final int sOff = south < 0 ? 0 : south * wpr;
+        final int cOff = y * wpr;
+
+        long result = nextCells(rule, in[cOff + i],
+                west(nRow, nOff, i, wpr, edge, wrapX), nRow[nOff + i], east(nRow, nOff, i, wpr, edge, wrapX),
+                west(in, cOff, i, wpr, edge, wrapX), east(in, cOff, i, wpr, edge, wrapX),
+                west(sRow, sOff, i, wpr, edge, wrapX), sRow[sOff + i], east(sRow, sOff, i, wpr, edge, wrapX));
+        return i < wpr - 1 ? result : result & (-1L >>> (-current.size.width & 63));
+    }
+
+    /**
+     * @return word i of the row at <code>offset</code>, shifted so each bit holds its western neighbour
+     */
+    private static long west(long[] row, int offset, int i, int wpr, int edge, boolean wrapX){
+        long carry = i > 0 ? row[offset + i - 1] >>> 63 :
+                     wrapX ? (row[offset + wpr - 1] >>> edge) & 1 :
+                             0;
+        return (row[offset + i] << 1) | carry;
+    }
+
+    /**
+     * @return word i of the row at <code>offset</code>, shifted so each bit holds its eastern neighbour
+     */
+    private static long east(long[] row, int offset, int i, int wpr, int edge, boolean wrapX){
+        long carry = i < wpr - 1 ? row[offset + i + 1] << 63 :
+                     wrapX ?       (row[offset] & 1) << edge :
+                                   0;
+        return (row[offset + i] >>> 1) | carry;
+    }
+
+    /**
+     * Applies <code>rule</code> to 64 cells at once.
+     * @param alive the current cells
+     * @return the cells alive in the next generation
+     */
+    static long nextCells(Rule rule, long alive, long nw, long n, long ne, long w, long e, long sw, long s, long se){
+        // Full adders over the rows above and below, half adder over the middle row
+        long nSum = nw ^ n ^ ne;
+        long nCarry = (nw & n) | (ne & (nw ^ n));
+        long sSum = sw ^ s ^ se;
+        long sCarry = (sw & s) | (se & (sw ^ s));
+        long mSum = w ^ e;
+        long mCarry = w & e;
+
+        // Count bit 0, and a carry into the twos
+        long ones = nSum ^ sSum ^ mSum;
+        long onesCarry = (nSum & sSum) | (mSum & (nSum ^ sSum));
+
+        // Four inputs into the twos, giving count bit 1 and two carries into the fours
+        long t = nCarry ^ sCarry ^ mCarry;
+        long tCarry = (nCarry & sCarry) | (mCarry & (nCarry ^ sCarry));
+        long twos = t ^ onesCarry;
+        long twosCarry = t & onesCarry;
+
+        if (rule == Rule.conway) {
+            // Any count of 4 or more dies; otherwise 3 lives, and 2 keeps a living cell alive
+            long fourOrMore = tCarry | twosCarry;
+            return twos & ~fourOrMore & (ones | alive);
+        }
+        // The two carries into the fours give count bits 2 and 3
+        return rule.nextCells(alive, ones, twos, tCarry ^ twosCarry, tCarry & twosCarry);
+    }
+}
@@ -0,0 +1,137 @@
+package gameoflife;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A board saved in a compact binary file, for boards too large for the text formats of <code>PatternIO</code>.
+ * The file is a 32-byte header followed by the state's words exactly as <code>GameState</code> holds them:
+ * <pre>
+ * 0   magic "GOLS"
+ * 4   format version (int)
+ * 8   width, height (ints)
+ * 16  geometry, one of the GameModel.Geometry_ constants (int)
+ * 20  rule: 0 for Conway's, otherwise bit 18 set, bits 9-17 the survival counts and 0-8 the birth counts (int)
+ * 24  generation (long)
+ * 32  words: wordsPerRow * height longs, row by row, cell (x, y) being bit x % 64 of word y * wordsPerRow + x / 64
+ * </pre>
+ * All values are little-endian. Files are read and written through memory-mapped <code>FileChannel</code>
+ * regions, copying the words in bulk between the mapping and the state without any intermediate buffer, so a
+ * board of several gigabytes loads and saves at close to the speed of the disk.
+ * @author thomdikdave
+ */
+public class BoardSnapshot {
+    public static final String extension = "golsnap";
+
+    static final int magic = 0x534C4F47; // "GOLS" read little-endian
+    static final int version = 1;
+    static final int headerSize = 32;
+    /**
+     * Words mapped at a time, as a mapping cannot exceed 2GB
+     */
+    static final int wordsPerMapping = 1 << 27;
+
+    public final GameState state;
+    /**
+     * One of the <code>GameModel.Geometry_</code> constants; <code>Geometry_Custom</code> if the geometry cannot
+     * be saved
+     */
+    public final int geometry;
+    public final long generation;
+    public final Rule rule;
+
+    public BoardSnapshot(GameState state, int geometry, long generation){
+        this(state, geometry, generation, Rule.conway);
+    }
+
+    public BoardSnapshot(GameState state, int geometry, long generation, Rule rule){
+        this.state = state;
+        this.geometry = geometry;
+        this.generation = generation;
+        this.rule = rule;
+    }
+
+    /**
+     * @return true if <code>file</code> is named as a snapshot
+     */
+    public static boolean isSnapshotFile(File file){
+        return file.getName().toLowerCase().endsWith("." + extension);
+    }
+
+    //Reading / Writing
+
+    /**
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static BoardSnapshot read(File file) throws IOException{
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() < headerSize) throw new IOException("Not a snapshot: " + file);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != magic) throw new IOException("Not a snapshot: " + file);
+            if (header.getInt(4) != version) throw new IOException("Unsupported snapshot version " + header.getInt(4));
+            int width = header.getInt(8);
+            int height = header.getInt(12);
+            int geometry = header.getInt(16);
+            long generation = header.getLong(24);
+            if (width < 0 || height < 0 || geometry < GameModel.Geometry_Custom || geometry > GameModel.Geometry_UnboundedPlane) {
+                throw new IOException("Corrupt snapshot: " + file);
+            }
+            Rule rule = decodeRule(header.getInt(20));
+            if (rule == null) throw new IOException("Corrupt snapshot: " + file);
+
+            long wordCount = (long)((width + 63) >>> 6) * height;
+            if (channel.size() != headerSize + wordCount * 8) {
+                throw new IOException("Snapshot is " + channel.size() + " bytes, expected " + (headerSize + wordCount * 8));
+            }
+            GameState state = new GameState(width, height);
+            for (int offset = 0; offset < state.words.length; offset += wordsPerMapping) {
+                int count = Math.min(wordsPerMapping, state.words.length - offset);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, headerSize + offset * 8L, count * 8L);
+                mapped.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(state.words, offset, count);
+            }
+            return new BoardSnapshot(state, geometry, generation, rule);
+        }
+    }
+
+    /**
+     * Writes the snapshot to <code>file</code>, replacing its contents
+     */
+    public void write(File file) throws IOException{
+        long size = headerSize + state.words.length * 8L;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            raf.setLength(size);
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, magic);
+            header.putInt(4, version);
+            header.putInt(8, state.size.width);
+            header.putInt(12, state.size.height);
+            header.putInt(16, geometry);
+            header.putInt(20, encodeRule(rule));
+            header.putLong(24, generation);
+            for (int offset = 0; offset < state.words.length; offset += wordsPerMapping) {
+                int count = Math.min(wordsPerMapping, state.words.length - offset);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, headerSize + offset * 8L, count * 8L);
+                mapped.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(state.words, offset, count);
+            }
+        }
+    }
+
+    static int encodeRule(Rule rule){
+        if (rule.equals(Rule.conway)) return 0;
+        return 1 << 18 | rule.getSurvivalMask() << 9 | rule.getBirthMask();
+    }
+
+    /**
+     * @return the rule encoded, or null if it is not a valid encoding
+     */
+    static Rule decodeRule(int encoded){
+        if (encoded == 0) return Rule.conway;
+        if ((encoded & ~0x7FFFF) != 0 || (encoded & 1 << 18) == 0 || (encoded & 1) != 0) return null;
+        return Rule.of(encoded, encoded >>> 9);
+    }
+}
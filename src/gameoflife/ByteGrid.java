@@ -0,0 +1,110 @@
+package gameoflife;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+
+/**
+ * A grid of bytes, stored row-major in one array: the entry at (x, y) is at index <code>y * width + x</code>.
+ * Entries are read and written by index in the inner loops, with no boxing and no <code>Point</code>s, and the
+ * array is exposed to the package for bulk work.
+ * @author thomdikdave
+ */
+public final class ByteGrid implements Cloneable {
+    public final Dimension size;
+    final int width;
+    byte[] data;
+
+    public ByteGrid(int width, int height){
+        this(new Dimension(width, height));
+    }
+    public ByteGrid(Dimension size){
+        this.size = (Dimension)size.clone();
+        this.width = size.width;
+        this.data = new byte[size.width * size.height];
+    }
+
+    /**
+     * @return the index of (x, y)
+     */
+    public int index(int x, int y){
+        return y * width + x;
+    }
+
+    //Setting / Getting
+
+    public byte getValueAtPoint(int x, int y){
+        return data[y * width + x];
+    }
+    public byte getValueAtIndex(int index){
+        return data[index];
+    }
+
+    /**
+     * @return the old value
+     */
+    public byte setValueAtPoint(byte in, int x, int y){
+        return this.setValueAtIndex(in, y * width + x);
+    }
+    public byte setValueAtIndex(byte in, int index){
+        byte out = data[index];
+        data[index] = in;
+        return out;
+    }
+
+    /**
+     * Adds <code>delta</code> to an entry
+     * @return the new value
+     */
+    public byte addAtIndex(int delta, int index){
+        return data[index] += delta;
+    }
+
+    //Bulk
+
+    /**
+     * Sets every entry to <code>in</code>
+     */
+    public void fill(byte in){
+        Arrays.fill(data, in);
+    }
+
+    /**
+     * Copies every entry of <code>other</code>, a grid of the same size
+     */
+    public void copyFrom(ByteGrid other){
+        System.arraycopy(other.data, 0, data, 0, data.length);
+    }
+
+    /**
+     * @return the index of the first entry at or after <code>from</code> that is not 0, or -1 if there is none
+     */
+    public int nextNonZero(int from){
+        for (int i = from; i < data.length; i++) {
+            if (data[i] != 0) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ByteGrid)) return false;
+        ByteGrid other = (ByteGrid)obj;
+        return size.equals(other.size) && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size.hashCode() + Arrays.hashCode(data);
+    }
+
+    @Override
+    protected Object clone() {
+        try {
+            ByteGrid out = (ByteGrid)super.clone();
+            out.data = data.clone();
+            return out;
+        } catch (CloneNotSupportedException ex) {
+            throw new java.lang.InternalError();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package gameoflife;
+
+import java.util.Arrays;
+
+/**
+ * The cells set by the user in one stroke of the mouse (from press to release), in order. <code>GameGrid</code>
+ * collects them as the pointer moves and hands them to its listeners when the stroke ends, so the whole stroke
+ * is applied to the board as one update.
+ * @author thomdikdave
+ */
+public class CellEdits {
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private boolean[] live = new boolean[16];
+    private int count;
+
+    /**
+     * Adds an edit; a cell edited again later in the stroke takes the later value
+     * @param x column of the cell
+     * @param y row of the cell
+     * @param live the cell's new live value
+     */
+    public void add(int x, int y, boolean live){
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, count * 2);
+            ys = Arrays.copyOf(ys, count * 2);
+            this.live = Arrays.copyOf(this.live, count * 2);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        this.live[count] = live;
+        count++;
+    }
+
+    /**
+     * Sets the edited cells of <code>state</code>, in order
+     */
+    public void applyTo(GameState state){
+        this.applyTo(state, null);
+    }
+
+    /**
+     * Sets the edited cells of <code>state</code>, in order, adding the words they are in to <code>changes</code>
+     * @param changes a set for a board the size of <code>state</code>, or null
+     */
+    public void applyTo(GameState state, ChangeSet changes){
+        for (int k = 0; k < count; k++) {
+            state.setValueAtPoint(live[k], xs[k], ys[k]);
+            if (changes != null) changes.add(ys[k] * state.wordsPerRow + (xs[k] >>> 6));
+        }
+    }
+
+    public int size(){
+        return count;
+    }
+    public int x(int k){
+        return xs[k];
+    }
+    public int y(int k){
+        return ys[k];
+    }
+    public boolean isLive(int k){
+        return live[k];
+    }
+}
@@ -0,0 +1,112 @@
+package gameoflife;
+
+/**
+ * The parts of a board that changed, as the set of words (64-cell runs of a row, indexed as in
+ * <code>GameState.words</code>) that may hold births or deaths. Filled in by engines after each generation
+ * (see <code>GameEngine.collectChanges</code>) and used by <code>GameGrid</code> to redraw and repaint only the
+ * regions that changed. Adding the same word twice has no effect, so the changes of several generations can
+ * be collected in one set.
+ * @author thomdikdave
+ */
+public class ChangeSet {
+    private int wordCount;
+    private long[] marked = new long[0];
+    private int[] words = new int[0];
+    private int count;
+    private boolean all;
+
+    /**
+     * Empties the set, for a board of <code>wordCount</code> words.
+     * @param wordCount
+     */
+    public void clear(int wordCount){
+        if (this.wordCount != wordCount) {
+            this.wordCount = wordCount;
+            marked = new long[(wordCount + 63) >>> 6];
+            words = new int[Math.min(wordCount, 1024)];
+        }else{
+            for (int k = 0; k < count; k++) {
+                marked[words[k] >>> 6] = 0;
+            }
+        }
+        count = 0;
+        all = false;
+    }
+
+    /**
+     * Adds a word that may have changed
+     * @param word index into the board's words
+     */
+    public void add(int word){
+        long mask = 1L << word;
+        if (all || (marked[word >>> 6] & mask) != 0) return;
+        marked[word >>> 6] |= mask;
+        if (count == words.length) {
+            int[] grown = new int[Math.min(Math.max(words.length * 2, 16), wordCount)];
+            System.arraycopy(words, 0, grown, 0, count);
+            words = grown;
+        }
+        words[count++] = word;
+    }
+
+    /**
+     * Marks the whole board as changed
+     */
+    public void addAll(){
+        all = true;
+    }
+
+    /**
+     * Adds every word that differs between two states of the same size
+     */
+    public void addDifferences(GameState previous, GameState next){
+        long[] a = previous.words;
+        long[] b = next.words;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) this.add(i);
+        }
+    }
+
+    /**
+     * Adds every word of <code>other</code>, which must be for a board of the same size
+     */
+    public void addAll(ChangeSet other){
+        if (other.all) {
+            this.addAll();
+            return;
+        }
+        for (int k = 0; k < other.count; k++) {
+            this.add(other.words[k]);
+        }
+    }
+
+    /**
+     * @return true if the whole board should be treated as changed, in which case <code>size()</code> and
+     * <code>word(int)</code> are meaningless
+     */
+    public boolean isAll(){
+        return all;
+    }
+
+    /**
+     * @return the number of words in the set
+     */
+    public int size(){
+        return count;
+    }
+
+    /**
+     * @param k 0 to <code>size()-1</code>
+     * @return the index of the k<sup>th</sup> word added
+     */
+    public int word(int k){
+        return words[k];
+    }
+
+    /**
+     * @return the number of words of the board this set is for
+     */
+    public int getWordCount(){
+        return wordCount;
+    }
+}
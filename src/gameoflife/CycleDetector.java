@@ -0,0 +1,133 @@
+package gameoflife;
+
+/**
+ * Recognises when a board returns to a state it was in a few generations earlier: a still life (period 1) or
+ * an oscillator. Each state is summarised by a 64-bit Zobrist-style hash, the XOR of a pseudo-random key for
+ * every non-empty word and its contents, so the hash is updated from the words that changed in each generation
+ * rather than recomputed. The hashes of the last <code>historyLength</code> generations are kept; when the
+ * latest hash matches one of them, the board is taken to be repeating with the distance between them as its
+ * period. With 64-bit hashes a false match is vanishingly unlikely, so states are not compared.
+ * @author thomdikdave
+ */
+class CycleDetector {
+    static final int defaultHistoryLength = 256;
+
+    private final long[] hashes;
+    private final long[] generations;
+    private int count;
+    private int next;
+
+    private long hash;
+    /**
+     * The state last hashed, and its modification count at the time, so edits can be noticed
+     */
+    private GameState state;
+    private int modCount;
+    private int period;
+
+    CycleDetector(){
+        this(defaultHistoryLength);
+    }
+
+    /**
+     * @param historyLength number of past generations remembered, which is also the longest period detected
+     */
+    CycleDetector(int historyLength){
+        hashes = new long[historyLength];
+        generations = new long[historyLength];
+    }
+
+    /**
+     * Forgets the history. The next update hashes the board afresh.
+     */
+    void reset(){
+        count = 0;
+        next = 0;
+        state = null;
+        period = 0;
+    }
+
+    /**
+     * Records the generation following <code>previous</code>.
+     * @param previous the state that was advanced
+     * @param current the state it was advanced to
+     * @param changes the words that changed between them, or null to compare every word
+     * @param generation the generation of <code>current</code>
+     */
+    void update(GameState previous, GameState current, ChangeSet changes, long generation){
+        if (previous != state || previous.modCount != modCount || previous.words.length != current.words.length) {
+            this.reset();
+            hash = hash(previous);
+            this.record(generation - 1);
+        }
+        long[] before = previous.words;
+        long[] after = current.words;
+        if (changes == null || changes.isAll() || changes.getWordCount() != after.length) {
+            for (int i = 0; i < after.length; i++) {
+                if (before[i] != after[i]) hash ^= key(i, before[i]) ^ key(i, after[i]);
+            }
+        }else{
+            for (int k = 0; k < changes.size(); k++) {
+                int i = changes.word(k);
+                hash ^= key(i, before[i]) ^ key(i, after[i]);
+            }
+        }
+        state = current;
+        modCount = current.modCount;
+
+        // The most recent match gives the shortest period
+        period = 0;
+        for (int k = 1; k <= count; k++) {
+            int entry = (next - k + hashes.length) % hashes.length;
+            if (hashes[entry] == hash) {
+                period = (int)(generation - generations[entry]);
+                break;
+            }
+        }
+        this.record(generation);
+    }
+
+    private void record(long generation){
+        hashes[next] = hash;
+        generations[next] = generation;
+        next = (next + 1) % hashes.length;
+        if (count < hashes.length) count++;
+    }
+
+    /**
+     * @return the period the latest generation repeats with, or 0 if it does not repeat any generation
+     * remembered
+     */
+    int getPeriod(){
+        return period;
+    }
+
+    /**
+     * Moves the remembered generations on by a whole number of periods, for a board advanced by skipping
+     * cycles rather than stepping through them
+     */
+    void skip(long generationCount){
+        for (int k = 0; k < count; k++) {
+            generations[k] += generationCount;
+        }
+    }
+
+    static long hash(GameState state){
+        long out = 0;
+        for (int i = 0; i < state.words.length; i++) {
+            out ^= key(i, state.words[i]);
+        }
+        return out;
+    }
+
+    /**
+     * @return the key of word i holding <code>word</code>, 0 for an empty word
+     */
+    static long key(int i, long word){
+        if (word == 0) return 0;
+        long z = word + (i + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
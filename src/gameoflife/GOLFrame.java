@@ -8,16 +8,14 @@ import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import javax.swing.AbstractAction;
 import javax.swing.ButtonGroup;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JComponent;
 import javax.swing.JDialog;
 import javax.swing.JFileChooser;
@@ -26,6 +24,7 @@ import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JSlider;
 import javax.swing.KeyStroke;
@@ -60,6 +59,13 @@ public class GOLFrame extends JFrame implements ActionListener, GameModelDelegat
     JMenuItem openGameFile;
     JMenuItem saveCurrentState;
     JMenuItem setGridSizeItem;
+    JRadioButtonMenuItem[] geometryItems;
+    JRadioButtonMenuItem[] ruleItems;
+    JRadioButtonMenuItem customRuleItem;
+    
+    //Rules offered in the Rule menu, in the order of ruleItems
+    private static final Rule[] rules = {Rule.conway, Rule.highLife, Rule.dayAndNight, Rule.seeds, Rule.lifeWithoutDeath};
+    private static final String[] ruleNames = {"Conway's Life", "HighLife", "Day & Night", "Seeds", "Life without Death"};
     
     //Established Color Schemes
     ArrayList<ColorScheme> colorSchemes;
@@ -217,10 +223,13 @@ public class GOLFrame extends JFrame implements ActionListener, GameModelDelegat
         JRadioButtonMenuItem geometryFlatItem = new JRadioButtonMenuItem("Euclidean Flat");
         geometryFlatItem.setSelected(true);
         JRadioButtonMenuItem geometryTorusItem = new JRadioButtonMenuItem("Euclidean Torus");
+        JRadioButtonMenuItem geometryPlaneItem = new JRadioButtonMenuItem("Unbounded Plane");
         
         ButtonGroup geometryGroup = new ButtonGroup();
         geometryGroup.add(geometryFlatItem);
         geometryGroup.add(geometryTorusItem);        
+        geometryGroup.add(geometryPlaneItem);
+        geometryItems = new JRadioButtonMenuItem[]{geometryFlatItem, geometryTorusItem, geometryPlaneItem};
         
         ActionListener geometriesListener = (e)->{
             JRadioButtonMenuItem source = (JRadioButtonMenuItem)e.getSource();
@@ -228,19 +237,53 @@ public class GOLFrame extends JFrame implements ActionListener, GameModelDelegat
                 model.setGeometry(GameModel.Geometry_EuclideanFlat);
             }else if (source==geometryTorusItem && model.getGeometry()!=GameModel.Geometry_EuclideanTorus) {
                 model.setGeometry(GameModel.Geometry_EuclideanTorus);
+            }else if (source==geometryPlaneItem && model.getGeometry()!=GameModel.Geometry_UnboundedPlane) {
+                model.setGeometry(GameModel.Geometry_UnboundedPlane);
             }
         };
         
         geometryFlatItem.addActionListener(geometriesListener);
         geometryTorusItem.addActionListener(geometriesListener);
+        geometryPlaneItem.addActionListener(geometriesListener);
         
         JMenu geometryMenu = new JMenu("Geometry");
         geometryMenu.add(geometryFlatItem);
         geometryMenu.add(geometryTorusItem);
+        geometryMenu.add(geometryPlaneItem);
                 
         optionsMenu.add(geometryMenu);
         
+        JMenu ruleMenu = new JMenu("Rule");
+        ButtonGroup ruleGroup = new ButtonGroup();
+        ruleItems = new JRadioButtonMenuItem[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            Rule rule = rules[i];
+            ruleItems[i] = new JRadioButtonMenuItem(ruleNames[i] + " (" + rule + ")");
+            ruleItems[i].addActionListener((e)->{
+                model.setRule(rule);
+            });
+            ruleGroup.add(ruleItems[i]);
+            ruleMenu.add(ruleItems[i]);
+        }
+        ruleItems[0].setSelected(true);
+        customRuleItem = new JRadioButtonMenuItem("Custom...");
+        customRuleItem.addActionListener((e)->{
+            this.promptRule();
+        });
+        ruleGroup.add(customRuleItem);
+        ruleMenu.add(customRuleItem);
+        
+        optionsMenu.add(ruleMenu);
+        
+        JCheckBoxMenuItem pauseOnCycleItem = new JCheckBoxMenuItem("Pause When Settled");
+        pauseOnCycleItem.addActionListener((e)->{
+            model.setPausesOnCycle(pauseOnCycleItem.isSelected());
+        });
+        optionsMenu.add(pauseOnCycleItem);
+        
         initialiseTemplates();   
+        initialiseViewMenu();
+        initialiseGenerationMenu();
     }
     
 //------------------------------------------------------
@@ -258,16 +301,20 @@ public class GOLFrame extends JFrame implements ActionListener, GameModelDelegat
             JMenuItem source = (JMenuItem)e.getSource();
             String path = null;
             if (source==GGGItem) {
-                path = cl.getResource("resources/GosperGliderGun.txt").getFile();
+                path = "resources/GosperGliderGun.txt";
             }else if (source==tagalong) {
-                path = cl.getResource("resources/Spaceship.txt").getFile();
+                path = "resources/Spaceship.txt";
             }else if (source==reciprocatingAgar) {
-                path = cl.getResource("resources/ReciprocationAgar.txt").getFile();
+                path = "resources/ReciprocationAgar.txt";
             }
             
             if (path!=null) {
-                String stateString = readGameFromPath(path);
-                model.loadState(GameState.readStateFromString(stateString));
+                String resource = path;
+                try {
+                    model.loadState(PatternIO.read(() -> new InputStreamReader(cl.getResourceAsStream(resource))));
+                } catch (IOException ex) {
+                    System.out.println("Error reading template");
+                }
             }
         };
             
@@ -281,6 +328,57 @@ public class GOLFrame extends JFrame implements ActionListener, GameModelDelegat
         templates.add(reciprocatingAgar);
     }
     
+    private void initialiseViewMenu(){
+        JMenu view = new JMenu("View");
+        JMenuItem zoomInItem = new JMenuItem("Zoom In");
+        zoomInItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, ActionEvent.META_MASK));
+        JMenuItem zoomOutItem = new JMenuItem("Zoom Out");
+        zoomOutItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, ActionEvent.META_MASK));
+        JMenuItem zoomToFitItem = new JMenuItem("Zoom to Fit");
+        zoomToFitItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_0, ActionEvent.META_MASK));
+        
+        zoomInItem.addActionListener((e)->{
+            grid.zoomIn();
+        });
+        zoomOutItem.addActionListener((e)->{
+            grid.zoomOut();
+        });
+        zoomToFitItem.addActionListener((e)->{
+            grid.zoomToFit();
+        });
+        
+        menuBar.add(view);
+        view.add(zoomInItem);
+        view.add(zoomOutItem);
+        view.add(zoomToFitItem);
+    }
+    
+    private void initialiseGenerationMenu(){
+        JMenu generation = new JMenu("Generation");
+        JMenuItem stepForwardItem = new JMenuItem("Step Forward");
+        stepForwardItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_RIGHT, ActionEvent.META_MASK));
+        JMenuItem stepBackItem = new JMenuItem("Step Back");
+        stepBackItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_LEFT, ActionEvent.META_MASK));
+        JMenuItem goToItem = new JMenuItem("Go to Generation...");
+        goToItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_G, ActionEvent.META_MASK));
+        
+        stepForwardItem.addActionListener((e)->{
+            if (model.isRunning()) model.pause();
+            model.updateIteration();
+        });
+        stepBackItem.addActionListener((e)->{
+            model.stepBack();
+        });
+        goToItem.addActionListener((e)->{
+            this.goToGeneration();
+        });
+        
+        menuBar.add(generation);
+        generation.add(stepForwardItem);
+        generation.add(stepBackItem);
+        generation.add(goToItem);
+    }
+    
 //------------------------------------------------------
 //-------Initialise the colour schemes-------
 //------------------------------------------------------  
@@ -335,7 +433,23 @@ public class GOLFrame extends JFrame implements ActionListener, GameModelDelegat
 //------------------------------------------------------
     @Override
     public void gameDidIterate() {
-        iterationLabel.setText("Iteration: " + model.iteration);        
+        iterationLabel.setText("Iteration: " + model.getIteration() + this.periodDescription());        
+    }
+
+    @Override
+    public void gameDidCycle(int period) {
+        this.gameDidIterate();
+    }
+    
+    private String periodDescription(){
+        switch (model.getPeriod()) {
+            case 0:
+                return "";
+            case 1:
+                return " (still)";
+            default:
+                return " (period " + model.getPeriod() + ")";
+        }
     }
 
     @Override
@@ -353,7 +467,7 @@ public class GOLFrame extends JFrame implements ActionListener, GameModelDelegat
     public void gameDidReset() {
         resetButton.setText("Clear");
         startButton.setText("Play");        
-        iterationLabel.setText("Iteration: 0");
+        iterationLabel.setText("Iteration: " + model.getIteration());
     }
 
     @Override
@@ -390,55 +504,61 @@ public class GOLFrame extends JFrame implements ActionListener, GameModelDelegat
 //------------------------------------------------------
     void openGame(){
         JFileChooser fc = new JFileChooser(); 
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("Text (*.txt)", "txt");
+        FileNameExtensionFilter filter = new FileNameExtensionFilter("Patterns (*.txt, *.rle, *.cells, *." + BoardSnapshot.extension + ")",
+                "txt", "rle", "cells", BoardSnapshot.extension);
         fc.setFileFilter(filter);
         int result= fc.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION){
             File file = fc.getSelectedFile();
-            String gameString = this.readGameFromPath(file.getAbsolutePath());
-            if (gameString!=null) {
-                GameState state = GameState.readStateFromString(gameString);
-                model.loadState(state);
+            try {
+                if (BoardSnapshot.isSnapshotFile(file)) {
+                    model.loadSnapshot(BoardSnapshot.read(file));
+                    if (model.getGeometry() != GameModel.Geometry_Custom) {
+                        geometryItems[model.getGeometry()].setSelected(true);
+                    }
+                }else{
+                    Rule rule = PatternIO.readRule(file);
+                    model.loadState(PatternIO.read(file));
+                    if (rule != null) model.setRule(rule);
+                }
+                this.showRule();
+            } catch (IOException e) {
+                System.out.println("Error reading file: " + e.getMessage());
             }
         }
     }
     
-    private String readGameFromPath (String path){
-        try {
-                FileReader reader = new FileReader(path);
-                BufferedReader bReader = new BufferedReader(reader);
-                String line;
-                String output = "";
-                while ((line=bReader.readLine())!= null) { 
-                    output += line + "\n";                 
-                }
-                return output.substring(0, output.length()); //remove last newline char            
-            } catch (FileNotFoundException ex) {
-                return null;
-            } catch (IOException ex) {
-                return null;
-            }        
-    }
-    
     void saveState(){
         JFileChooser fc = new JFileChooser();
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("Text (*.txt)", "txt");
-        fc.setFileFilter(filter);
+        FileNameExtensionFilter textFilter = new FileNameExtensionFilter("Text (*.txt)", "txt");
+        FileNameExtensionFilter rleFilter = new FileNameExtensionFilter("Run Length Encoded (*.rle)", "rle");
+        FileNameExtensionFilter snapshotFilter = new FileNameExtensionFilter("Binary Snapshot (*." + BoardSnapshot.extension + ")",
+                BoardSnapshot.extension);
+        fc.addChoosableFileFilter(textFilter);
+        fc.addChoosableFileFilter(rleFilter);
+        fc.addChoosableFileFilter(snapshotFilter);
+        fc.setFileFilter(textFilter);
         
         int result = fc.showSaveDialog(this);
         if (result==JFileChooser.APPROVE_OPTION) {
-            String stringState = model.currentState.toString();
             String outString = fc.getSelectedFile().getPath();
-            if (!outString.endsWith(".txt")) {
-                outString += ".txt";
+            if (!outString.endsWith(".txt") && !outString.endsWith(".rle") && !outString.endsWith("." + BoardSnapshot.extension)) {
+                if (fc.getFileFilter()==rleFilter) {
+                    outString += ".rle";
+                }else if (fc.getFileFilter()==snapshotFilter) {
+                    outString += "." + BoardSnapshot.extension;
+                }else{
+                    outString += ".txt";
+                }
             }
-            File outFile = fc.getSelectedFile();
+            File outFile = new File(outString);
             
             try{
-                FileWriter writer = new FileWriter(outFile);
-                BufferedWriter bWriter = new BufferedWriter(writer);
-                bWriter.write(stringState);
-                bWriter.close();
+                if (BoardSnapshot.isSnapshotFile(outFile)) {
+                    model.getSnapshot().write(outFile);
+                }else{
+                    PatternIO.write(model.getSnapshot().state, model.getRule(), outFile);
+                }
             }catch(FileNotFoundException e){
                 System.out.println("Error opening file");
             }catch (IOException e){
@@ -447,6 +567,50 @@ public class GOLFrame extends JFrame implements ActionListener, GameModelDelegat
         }
     }
 
+    /**
+     * Deferred from the 'Custom...' rule JMenuItem. Prompts for a rule in B/S notation and sets it on the model.
+     */
+    void promptRule(){
+        String input = JOptionPane.showInputDialog(this, "Rule (such as B36/S23):", model.getRule());
+        if (input != null) {
+            try {
+                model.setRule(Rule.parse(input));
+            } catch (IllegalArgumentException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage());
+            }
+        }
+        this.showRule();
+    }
+    
+    /**
+     * Selects the Rule menu item of the model's rule
+     */
+    private void showRule(){
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i].equals(model.getRule())) {
+                ruleItems[i].setSelected(true);
+                return;
+            }
+        }
+        customRuleItem.setSelected(true);
+    }
+
+    /**
+     * Deferred from the 'Go to Generation' JMenuItem. Prompts for a generation and moves the game to it; earlier
+     * generations than those held in the history go to the earliest held.
+     */
+    void goToGeneration(){
+        if (model.isRunning()) model.pause();
+        String input = JOptionPane.showInputDialog(this,
+                "Generation (from " + model.getEarliestIteration() + "):", model.getIteration());
+        if (input == null) return;
+        try {
+            model.seek(Long.parseLong(input.trim()));
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Not a generation: " + input);
+        }
+    }
+
     /**
      *Deferred from the 'Set Grid Size' JMenuItem. Launches a new modal window with a <code>ResizeOptionPane</code>
      * content pane. Listens for actions sent from the pane and adjusts the grid size accordingly, calling 
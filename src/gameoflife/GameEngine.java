@@ -0,0 +1,53 @@
+package gameoflife;
+
+/**
+ * Strategy for calculating the next generation of a <code>GameState</code>. A <code>GameModel</code> holds
+ * one engine, selected with <code>setEngine(int)</code>, and calls it once per iteration.
+ * @author thomdikdave
+ */
+public interface GameEngine {
+    /**
+     * Writes the generation following <code>current</code> into <code>next</code>, overwriting every cell.
+     * Both states have the same size, and are never the same object.
+     * @param current the state to advance (not modified)
+     * @param next the state to write the result to
+     * @param geo the geometry determining which cells are adjacent
+     */
+    void nextGeneration(GameState current, GameState next, GameModel.GameGeometry geo);
+    
+    /**
+     * Sets the rule the following generations are calculated with. Engines that only follow Conway's rule
+     * need not override this.
+     * @param rule the new rule
+     * @throws UnsupportedOperationException if the engine cannot follow <code>rule</code>
+     */
+    default void setRule(Rule rule){
+        if (!rule.equals(Rule.conway)) throw new UnsupportedOperationException("This engine only follows " + Rule.conway);
+    }
+
+    /**
+     * Called when the model stops using this engine, to release any threads or caches it holds.
+     */
+    default void dispose(){}
+
+    /**
+     * Adds to <code>changes</code> the words that differ between <code>previous</code> and <code>next</code>,
+     * the arguments of the last call to <code>nextGeneration</code>. By default every word is compared; engines
+     * that already know which parts of the board changed override this.
+     * @param previous the state that was advanced
+     * @param next the state the result was written to
+     * @param changes set to add the changed words to
+     */
+    default void collectChanges(GameState previous, GameState next, ChangeSet changes){
+        changes.addDifferences(previous, next);
+    }
+    
+    /**
+     * Engines that cannot follow cells beyond the edges of the grid are replaced by a <code>TiledPlaneEngine</code>
+     * when the geometry is unbounded.
+     * @return true if this engine can step unbounded geometries (see <code>GameGeometry.isUnbounded</code>)
+     */
+    default boolean supportsUnboundedGeometry(){
+        return false;
+    }
+}
@@ -4,210 +4,768 @@ package gameoflife;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
-import java.awt.GridLayout;
-import java.awt.Insets;
+import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EventListener;
-import java.util.Iterator;
+import java.util.Random;
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
 import javax.swing.event.EventListenerList;
 
 
-public class GameGrid extends JComponent implements Iterable<Cell>, MouseListener{        
-    
-    Grid<Cell> cells;    
+/**
+ * Displays a <code>GameState</code> through a zoomable, pannable viewport. Only the part of the board inside the
+ * viewport is drawn, into a single <code>BufferedImage</code> the size of the component, which is updated as the
+ * state changes and copied to the screen in one <code>paintComponent</code> pass. The cost of drawing therefore
+ * depends on the size of the window rather than of the board.
+ * <p>Zoomed in (a pixel or more per cell), each cell is drawn as a dot from a pre-rendered sprite, live cells in
+ * one of the colour scheme's cell colours. Zoomed out (several cells per pixel), each pixel is shaded by the
+ * density of live cells in the square of cells it covers.</p>
+ * <p>The mouse wheel zooms around the pointer, and dragging with the right or middle button pans. Pressing and
+ * dragging with the left button toggles cells, mapped from the pointer arithmetically; cells cannot be edited
+ * while zoomed out. The cells toggled in one stroke are drawn straight away, and passed to the listeners as one
+ * <code>CellEdits</code> when the button is released.</p>
+ * @author thomdikdave
+ */
+public class GameGrid extends JComponent implements MouseListener, MouseMotionListener, MouseWheelListener{
+
     private GameState state;
     public GameState getState() {return state;}
     EventListenerList listeners;
     private Dimension size;
     public Dimension gridSize() {return (Dimension)size.clone();}
-    
-    private Dimension cellSize = new Dimension(20,20);
-    
+
+    /**
+     * Zoom levels, from the closest: positive entries are pixels per cell, negative entries minus the number of
+     * cells per pixel
+     */
+    static final int[] zoomLevels = {32, 24, 20, 16, 12, 10, 8, 6, 5, 4, 3, 2, 1,
+                                     -2, -4, -8, -16, -32, -64, -128, -256, -512, -1024};
+    /**
+     * The largest cell size a board is fitted to the window with
+     */
+    static final int maximumFittedCellSize = 20;
+
+    /**
+     * Pixels per cell if positive, otherwise minus the number of cells per pixel
+     */
+    private int scale;
+    /**
+     * Position on the board, in pixels at the current scale, shown at the top-left of the viewport. Negative when
+     * the board is centred in a larger viewport.
+     */
+    private int offsetX, offsetY;
+    private Dimension viewSize;
+
     private ColorScheme colorScheme;
-    
-    
+    /**
+     * Shuffles which colour each live cell is drawn in
+     */
+    private long colorSeed;
+    private final Random random = new Random();
+
+    private BufferedImage image;
+    /**
+     * The image's pixels, written directly
+     */
+    private int[] pixels;
+    /**
+     * The live cells currently drawn, bit-packed as in <code>GameState</code>
+     */
+    private long[] shown;
+    private int wordsPerRow;
+    private int[][] liveSprites = new int[0][];
+    private int[] deadSprite;
+    /**
+     * Colour of a zoomed-out pixel by the proportion of live cells it covers, from 0 (none) to 255 (all)
+     */
+    private final int[] densityColors = new int[256];
+    /**
+     * Zoomed out, the number of the last update each pixel was drawn in, so that pixels covering several
+     * changed words are only drawn once per update
+     */
+    private int[] pixelUpdates = new int[0];
+    private int update;
+
+    /**
+     * Changed pixels are collected in tiles of <code>dirtyTileWidth</code> by <code>dirtyTileHeight</code>,
+     * each holding the bounds of its changes (<code>minX == Integer.MAX_VALUE</code> if it has none)
+     */
+    static final int dirtyTileWidth = 64;
+    static final int dirtyTileHeight = 16;
+    /**
+     * Above this many dirty regions, the bounds of them all are repainted instead
+     */
+    static final int maximumDirtyRegions = 64;
+    private int dirtyTilesPerRow;
+    private int[] dirtyMinX, dirtyMaxX, dirtyMinY, dirtyMaxY;
+    private int[] dirtyTiles;
+    private int dirtyTileCount;
+
+
 //------------------------------------------------------
 //-------Initialising-------
 //------------------------------------------------------
-    
+
     public GameGrid(Dimension size){
-        super();     
+        super();
         this.size = size;
-        int cellDiameter = this.calculateCellDiameter();
-        this.cellSize = new Dimension(cellDiameter,cellDiameter);
+        this.addMouseListener(this);
+        this.addMouseMotionListener(this);
+        this.addMouseWheelListener(this);
         this.initialiseGrid();
     }
-    
+
     private void initialiseGrid(){
-        this.setLayout(new GridLayout(size.height, size.width));                
-        cells = new Grid<>(size);
-        cells.populateGrid(()-> new Cell());
-        for (Cell c : cells) {
-            this.add(c);
-            c.addMouseListener(this);
-            if (colorScheme!=null){
-                c.deadColor = colorScheme.deadCellColor;
-            }                    
-        }
-        this.setSize(this.getPreferredSize());        
+        stroke = null;
+        lastDragCell = null;
+        wordsPerRow = (size.width + 63) >>> 6;
+        shown = new long[wordsPerRow * size.height];
+        Dimension maxSize = GameOfLife.maxGridSize;
+        scale = fitScale(size, maxSize);
+        viewSize = new Dimension(Math.min(this.boardPixels(size.width), maxSize.width),
+                                 Math.min(this.boardPixels(size.height), maxSize.height));
+        this.makeSprites();
+        this.setSize(viewSize);
+        this.allocateImage();
     }
-    
+
+    /**
+     * (Re)allocates the image at the current component size and redraws it
+     */
+    private void allocateImage(){
+        int w = Math.max(this.getWidth(), 1);
+        int h = Math.max(this.getHeight(), 1);
+        image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        pixelUpdates = new int[pixels.length];
+        dirtyTilesPerRow = (w + dirtyTileWidth - 1) / dirtyTileWidth;
+        int tileCount = dirtyTilesPerRow * ((h + dirtyTileHeight - 1) / dirtyTileHeight);
+        dirtyMinX = new int[tileCount];
+        dirtyMaxX = new int[tileCount];
+        dirtyMinY = new int[tileCount];
+        dirtyMaxY = new int[tileCount];
+        dirtyTiles = new int[tileCount];
+        dirtyTileCount = 0;
+        Arrays.fill(dirtyMinX, Integer.MAX_VALUE);
+        this.clampOffsets();
+        this.redrawAll();
+    }
+
 //------------------------------------------------------
 //-------Basic Setting-------
 //------------------------------------------------------
-    
+
     /**
-     * Returns the ideal diameter of the grid cells, depending on the size of the grid. 
-     * @return cell diameter (max 20)
+     * Returns the scale that fits a board into an area: the largest cell diameter up to
+     * <code>maximumFittedCellSize</code>, or if even one pixel per cell is too large, the smallest power of two
+     * cells per pixel.
+     * @return pixels per cell if positive, otherwise minus the number of cells per pixel
      */
-    private int calculateCellDiameter(){
-        Dimension maxSize = GameOfLife.maxGridSize;
-        int newMaxCellWidth = maxSize.width / size.width;
-        int newMaxCellHeight = maxSize.height / size.height;                
-        
-        if (newMaxCellWidth >= 20 && newMaxCellHeight >= 20) {
-            return 20;
-        }else{
-            int minDiameter = newMaxCellWidth < newMaxCellHeight ? newMaxCellWidth : newMaxCellHeight;
-            return minDiameter;
+    static int fitScale(Dimension board, Dimension area){
+        int newMaxCellWidth = area.width / board.width;
+        int newMaxCellHeight = area.height / board.height;
+        int minDiameter = newMaxCellWidth < newMaxCellHeight ? newMaxCellWidth : newMaxCellHeight;
+        if (minDiameter >= 1) {
+            return minDiameter < maximumFittedCellSize ? minDiameter : maximumFittedCellSize;
         }
+        int cellsPerPixel = 2;
+        while ((board.width + cellsPerPixel - 1) / cellsPerPixel > area.width
+                || (board.height + cellsPerPixel - 1) / cellsPerPixel > area.height) {
+            cellsPerPixel *= 2;
+        }
+        return -cellsPerPixel;
     }
 
     /**
      * Sets the dimension of the grid (not the component size!). Calling this method will trigger a re-initialisation
-     * of the grid. This involves resetting the layout manager, and re-populating the grid with new Cells.
+     * of the grid, clearing it and fitting it to <code>GameOfLife.maxGridSize</code>.
      * <p> Finally, a <code>gridDidResize</code> is called on any GameGridListeners</p>
-     * @param size 
+     * @param size
      */
     public void setGridSize(Dimension size){
         this.size = size;
-        int minDiameter = this.calculateCellDiameter();
-        this.cellSize = new Dimension(minDiameter,minDiameter);        
-        
-        this.removeAll();
-        this.initialiseGrid();       
+        this.initialiseGrid();
         if (listeners != null){
             for (GameGridListener l : listeners.getListeners(GameGridListener.class)) {
                 l.gridDidResize();
             }
-        }  
-    }        
-    
+        }
+    }
+
     /**
      * Sets the state information of the grid to the parameter state. If the state size is different to
      * the grid size, this triggers a <code>setGridSize</code> call.
-     * <p>Each cell in the grid is then queried and the state of each cell is set to the new value where appropriate</p>
-     * <p>If a cell is set to live state, the cell's liveColor property is set to the current color scheme's random color call</p>
-     * @param state 
+     * <p>The state is compared with the cells currently drawn a word (64 cells) at a time, and only the parts of
+     * the viewport covering words that differ are redrawn and repainted.</p>
+     * @param state
      */
     public void setState(GameState state){
+        this.setState(state, null);
+    }
+
+    /**
+     * Sets the state, comparing only the words in <code>changes</code> with the cells currently drawn, so the
+     * cost follows the number of changes rather than the size of the board.
+     * @param state
+     * @param changes the words that may differ from the state previously set (merged over every state since,
+     * if some were skipped), or null to compare every word
+     */
+    public void setState(GameState state, ChangeSet changes){
         this.state = state;
-        if (!state.size.equals(this.size)) {this.setGridSize(state.size);}
-                
-        for (Iterator<Point> it = cells.iteratePoints(); it.hasNext();){
-            Point p = it.next();
-            Cell c = cells.getValueAtPoint(p);
-            
-            if (c.isLive()==state.getValueAtPoint(p)) continue;
-                
-            c.setLive(state.getValueAtPoint(p));            
-            if (c.isLive()) {
-                c.liveColor = colorScheme.randomCellColor();
+        if (!state.size.equals(this.size)) {
+            this.setGridSize(state.size);
+            changes = null;
+        }
+
+        long[] words = state.words;
+        update++;
+        if (changes == null || changes.isAll() || changes.getWordCount() != shown.length) {
+            for (int i = 0; i < shown.length; i++) {
+                if (words[i] != shown[i]) this.updateWord(words, i);
+            }
+        }else{
+            for (int k = 0; k < changes.size(); k++) {
+                int i = changes.word(k);
+                if (words[i] != shown[i]) this.updateWord(words, i);
             }
         }
-        this.repaint();
-    } 
+        if (stroke != null) this.redrawStroke();
+        this.repaintDirtyRegions();
+    }
 
-        
     @Override
     public Dimension getPreferredSize() {
-        int width = size.width * cellSize.width;
-        int height = size.height * cellSize.height;
-        return new Dimension(width, height);
+        return (Dimension)viewSize.clone();
+    }
+
+    /**
+     * @param x pixel x-coordinate within this component
+     * @param y pixel y-coordinate within this component
+     * @return the cell at that point, or null if there is none or the grid is zoomed out
+     */
+    public Point cellAtPoint(int x, int y){
+        if (scale < 1) return null;
+        int cx = Math.floorDiv(x + offsetX, scale);
+        int cy = Math.floorDiv(y + offsetY, scale);
+        if (cx < 0 || cy < 0 || cx >= size.width || cy >= size.height) return null;
+        return new Point(cx, cy);
+    }
+
+    /**
+     * @return the rectangle of this component covered by the given cell, which is zoomed in
+     */
+    public Rectangle cellBounds(int x, int y){
+        return new Rectangle(x * scale - offsetX, y * scale - offsetY, scale, scale);
+    }
+
+//------------------------------------------------------
+//-------Viewport-------
+//------------------------------------------------------
+
+    /**
+     * @return pixels per cell if positive, otherwise minus the number of cells per pixel
+     */
+    public int getScale(){
+        return scale;
+    }
+
+    /**
+     * Zooms in one level, keeping the centre of the viewport in place
+     */
+    public void zoomIn(){
+        this.zoom(-1, this.getWidth() / 2, this.getHeight() / 2);
+    }
+
+    /**
+     * Zooms out one level, keeping the centre of the viewport in place
+     */
+    public void zoomOut(){
+        this.zoom(1, this.getWidth() / 2, this.getHeight() / 2);
+    }
+
+    /**
+     * Zooms so that the whole board fits in the viewport, centred
+     */
+    public void zoomToFit(){
+        this.setScale(fitScale(size, this.getSize()), 0, 0);
+        this.viewDidChange();
+    }
+
+    /**
+     * Moves the viewport by the given number of pixels, as far as the edges of the board
+     */
+    public void pan(int dx, int dy){
+        offsetX += dx;
+        offsetY += dy;
+        this.viewDidChange();
+    }
+
+    /**
+     * @param levels number of zoom levels to move by, positive to zoom out
+     * @param anchorX x-coordinate in the viewport that stays over the same cell
+     * @param anchorY y-coordinate in the viewport that stays over the same cell
+     */
+    private void zoom(int levels, int anchorX, int anchorY){
+        int level = 0;
+        while (level < zoomLevels.length - 1 && zoomLevels[level] > scale) level++;
+        // Zooming in from a fitted scale between two levels starts from the level below it
+        if (zoomLevels[level] != scale && levels < 0) levels++;
+        level = Math.max(0, Math.min(zoomLevels.length - 1, level + levels));
+        if (zoomLevels[level] == scale) return;
+        this.setScale(zoomLevels[level], anchorX, anchorY);
+        this.viewDidChange();
+    }
+
+    private void setScale(int newScale, int anchorX, int anchorY){
+        double cellX = this.cellCoordinate(anchorX + offsetX);
+        double cellY = this.cellCoordinate(anchorY + offsetY);
+        scale = newScale;
+        offsetX = (int)Math.floor(this.pixelCoordinate(cellX) - anchorX);
+        offsetY = (int)Math.floor(this.pixelCoordinate(cellY) - anchorY);
+        this.makeSprites();
+    }
+
+    private void viewDidChange(){
+        this.clampOffsets();
+        this.redrawAll();
+        this.repaint();
+    }
+
+    /**
+     * Centres the board if it is smaller than the viewport, otherwise keeps the viewport within the board
+     */
+    private void clampOffsets(){
+        offsetX = clampOffset(offsetX, this.boardPixels(size.width), this.getWidth());
+        offsetY = clampOffset(offsetY, this.boardPixels(size.height), this.getHeight());
+    }
+
+    private static int clampOffset(int offset, int boardPixels, int viewPixels){
+        if (boardPixels <= viewPixels) return -((viewPixels - boardPixels) / 2);
+        return Math.max(0, Math.min(boardPixels - viewPixels, offset));
+    }
+
+    /**
+     * @return the number of pixels across <code>cells</code> cells at the current scale
+     */
+    private int boardPixels(int cells){
+        if (scale > 0) return (int)Math.min((long)cells * scale, Integer.MAX_VALUE);
+        return (cells - scale - 1) / -scale;
+    }
+
+    private double cellCoordinate(double pixel){
+        return scale > 0 ? pixel / scale : pixel * -scale;
+    }
+
+    private double pixelCoordinate(double cell){
+        return scale > 0 ? cell * scale : cell / -scale;
     }
-    
 
 //------------------------------------------------------
-//-------Iteration-------
+//-------Dirty regions-------
 //------------------------------------------------------
-    
+
+    /**
+     * Marks the pixels from (minX, minY) to (maxX, maxY) inclusive, which lie within the image, as changed
+     */
+    private void markDirty(int minX, int minY, int maxX, int maxY){
+        for (int ty = minY / dirtyTileHeight; ty <= maxY / dirtyTileHeight; ty++) {
+            for (int tx = minX / dirtyTileWidth; tx <= maxX / dirtyTileWidth; tx++) {
+                int tile = ty * dirtyTilesPerRow + tx;
+                int x0 = Math.max(minX, tx * dirtyTileWidth);
+                int x1 = Math.min(maxX, tx * dirtyTileWidth + dirtyTileWidth - 1);
+                int y0 = Math.max(minY, ty * dirtyTileHeight);
+                int y1 = Math.min(maxY, ty * dirtyTileHeight + dirtyTileHeight - 1);
+                if (dirtyMinX[tile] == Integer.MAX_VALUE) {
+                    dirtyTiles[dirtyTileCount++] = tile;
+                    dirtyMinX[tile] = x0;
+                    dirtyMaxX[tile] = x1;
+                    dirtyMinY[tile] = y0;
+                    dirtyMaxY[tile] = y1;
+                    continue;
+                }
+                if (x0 < dirtyMinX[tile]) dirtyMinX[tile] = x0;
+                if (x1 > dirtyMaxX[tile]) dirtyMaxX[tile] = x1;
+                if (y0 < dirtyMinY[tile]) dirtyMinY[tile] = y0;
+                if (y1 > dirtyMaxY[tile]) dirtyMaxY[tile] = y1;
+            }
+        }
+    }
+
+    /**
+     * Repaints the pixels changed since the last call. Dirty tiles that are next to each other in a row are
+     * merged into one region, and each region is painted straight away: <code>repaint(Rectangle)</code> would
+     * merge them all into their bounding box. Too many regions, or a grid that is not showing, fall back to
+     * repainting the bounding box.
+     */
+    private void repaintDirtyRegions(){
+        if (dirtyTileCount == 0) return;
+        Arrays.sort(dirtyTiles, 0, dirtyTileCount);
+        ArrayList<Rectangle> regions = new ArrayList<>();
+        Rectangle bounds = null;
+        Rectangle region = null;
+        int lastTile = -2;
+        for (int k = 0; k < dirtyTileCount; k++) {
+            int tile = dirtyTiles[k];
+            Rectangle r = new Rectangle(dirtyMinX[tile], dirtyMinY[tile],
+                    dirtyMaxX[tile] - dirtyMinX[tile] + 1, dirtyMaxY[tile] - dirtyMinY[tile] + 1);
+            dirtyMinX[tile] = Integer.MAX_VALUE;
+            bounds = bounds == null ? r : bounds.union(r);
+            if (region != null && tile == lastTile + 1 && tile % dirtyTilesPerRow != 0) {
+                region.add(r);
+            }else{
+                region = r;
+                regions.add(region);
+            }
+            lastTile = tile;
+        }
+        dirtyTileCount = 0;
+
+        if (regions.size() > maximumDirtyRegions || !this.isShowing()) {
+            this.repaint(bounds);
+            return;
+        }
+        for (Rectangle r : regions) {
+            this.paintImmediately(r);
+        }
+    }
+
+//------------------------------------------------------
+//-------Drawing-------
+//------------------------------------------------------
+
     @Override
-    public Iterator<Cell> iterator() {       
-        return cells.iterator();
+    protected void paintComponent(Graphics g) {
+        if (image.getWidth() != Math.max(this.getWidth(), 1) || image.getHeight() != Math.max(this.getHeight(), 1)) {
+            this.allocateImage();
+        }
+        g.drawImage(image, 0, 0, null);
+    }
+
+    /**
+     * @return true if the cell is drawn live
+     */
+    public boolean isShown(int x, int y){
+        return (shown[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Takes word i from <code>words</code>, redrawing the part of the viewport that covers it and marking that
+     * dirty
+     */
+    private void updateWord(long[] words, int i){
+        long changed = words[i] ^ shown[i];
+        shown[i] = words[i];
+        int y = i / wordsPerRow;
+        int column = (i - y * wordsPerRow) << 6;
+        int x0 = column + Long.numberOfTrailingZeros(changed);
+        int x1 = column + 63 - Long.numberOfLeadingZeros(changed);
+        int w = image.getWidth();
+        int h = image.getHeight();
+        if (scale > 0) {
+            int py = y * scale - offsetY;
+            int px0 = x0 * scale - offsetX;
+            int px1 = x1 * scale + scale - 1 - offsetX;
+            if (py + scale <= 0 || py >= h || px1 < 0 || px0 >= w) return;
+            for (; changed != 0; changed &= changed - 1) {
+                this.drawCell(column + Long.numberOfTrailingZeros(changed), y);
+            }
+            this.markDirty(Math.max(px0, 0), Math.max(py, 0), Math.min(px1, w - 1), Math.min(py + scale - 1, h - 1));
+        }else{
+            int py = y / -scale - offsetY;
+            int px0 = Math.max(x0 / -scale - offsetX, 0);
+            int px1 = Math.min(x1 / -scale - offsetX, w - 1);
+            if (py < 0 || py >= h || px1 < px0) return;
+            for (int px = px0; px <= px1; px++) {
+                if (pixelUpdates[py * w + px] == update) continue;
+                pixelUpdates[py * w + px] = update;
+                this.drawDensity(words, px, py);
+            }
+            this.markDirty(px0, py, px1, py);
+        }
+    }
+
+    /**
+     * Draws a cell, zoomed in, clipped to the image
+     */
+    private void drawCell(int x, int y){
+        int[] sprite = this.isShown(x, y) ? this.liveSprite(x, y) : deadSprite;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int px = x * scale - offsetX;
+        int py = y * scale - offsetY;
+        int left = Math.max(0, -px);
+        int right = Math.min(scale, w - px);
+        if (right <= left) return;
+        if (scale == 1) {
+            if (py >= 0 && py < h) pixels[py * w + px] = sprite[0];
+            return;
+        }
+        for (int r = Math.max(0, -py); r < scale && py + r < h; r++) {
+            System.arraycopy(sprite, r * scale + left, pixels, (py + r) * w + px + left, right - left);
+        }
+    }
+
+    /**
+     * Draws a pixel, zoomed out, shaded by the number of live cells in the square of cells it covers
+     * @param words the cells to count, bit-packed as in <code>GameState</code>: the new state while it is being
+     * taken into <code>shown</code>, as the pixel may cover words not yet taken
+     */
+    private void drawDensity(long[] words, int px, int py){
+        int cellsPerPixel = -scale;
+        int x0 = (px + offsetX) * cellsPerPixel;
+        int y0 = (py + offsetY) * cellsPerPixel;
+        int x1 = Math.min(x0 + cellsPerPixel, size.width);
+        int y1 = Math.min(y0 + cellsPerPixel, size.height);
+        int count = 0;
+        for (int y = y0; y < y1; y++) {
+            int row = y * wordsPerRow;
+            for (int x = x0; x < x1; x = (x | 63) + 1) {
+                int end = Math.min(x1, (x | 63) + 1);
+                long mask = (end - x == 64 ? -1L : (1L << (end - x)) - 1) << x;
+                count += Long.bitCount(words[row + (x >>> 6)] & mask);
+            }
+        }
+        int area = (x1 - x0) * (y1 - y0);
+        // Any live cell at all is given a visible shade
+        pixels[py * image.getWidth() + px] = densityColors[count == 0 ? 0 : 64 + 191 * count / area];
+    }
+
+    /**
+     * Redraws every pixel of the viewport
+     */
+    private void redrawAll(){
+        Arrays.fill(pixels, 0);
+        int w = image.getWidth();
+        int h = image.getHeight();
+        if (scale > 0) {
+            int cx0 = Math.max(0, Math.floorDiv(offsetX, scale));
+            int cx1 = Math.min(size.width - 1, Math.floorDiv(offsetX + w - 1, scale));
+            int cy0 = Math.max(0, Math.floorDiv(offsetY, scale));
+            int cy1 = Math.min(size.height - 1, Math.floorDiv(offsetY + h - 1, scale));
+            for (int y = cy0; y <= cy1; y++) {
+                for (int x = cx0; x <= cx1; x++) {
+                    this.drawCell(x, y);
+                }
+            }
+        }else{
+            int px1 = Math.min(w - 1, this.boardPixels(size.width) - 1 - offsetX);
+            int py1 = Math.min(h - 1, this.boardPixels(size.height) - 1 - offsetY);
+            for (int py = Math.max(0, -offsetY); py <= py1; py++) {
+                for (int px = Math.max(0, -offsetX); px <= px1; px++) {
+                    this.drawDensity(shown, px, py);
+                }
+            }
+        }
+    }
+
+    private int[] liveSprite(int x, int y){
+        if (liveSprites.length == 0) return deadSprite;
+        if (liveSprites.length == 1) return liveSprites[0];
+        return liveSprites[this.colorIndex(x, y)];
+    }
+
+    /**
+     * Live cells are coloured by a hash of their position, so no colour needs to be stored per cell
+     * @return index into the colour scheme's cell colours
+     */
+    private int colorIndex(int x, int y){
+        long h = ((long)x << 32 | y) ^ colorSeed;
+        h *= 0x9E3779B97F4A7C15L;
+        h ^= h >>> 31;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int)((h >>> 33) % liveSprites.length);
     }
-    
-    public Iterator<Point> iteratePoints() {
-        return cells.iteratePoints();
+
+    /**
+     * Pre-renders the pixels of a cell in each of the colour scheme's colours at the current scale, and the
+     * colour of each density when zoomed out
+     */
+    private void makeSprites(){
+        Color[] cellColors = colorScheme == null ? new Color[0] : colorScheme.cellColors;
+        Color deadColor = colorScheme == null ? null : colorScheme.deadCellColor;
+        int cellSize = scale > 0 ? scale : 1;
+        liveSprites = new int[cellColors.length][];
+        for (int i = 0; i < cellColors.length; i++) {
+            liveSprites[i] = makeSprite(cellColors[i], cellSize);
+        }
+        deadSprite = makeSprite(deadColor, cellSize);
+
+        // Densities blend from the dead colour (or transparency) to the average cell colour
+        int red = 0, green = 0, blue = 0;
+        for (Color c : cellColors) {
+            red += c.getRed();
+            green += c.getGreen();
+            blue += c.getBlue();
+        }
+        int n = Math.max(cellColors.length, 1);
+        Color live = new Color(red / n, green / n, blue / n);
+        for (int d = 0; d < 256; d++) {
+            if (deadColor == null) {
+                densityColors[d] = d << 24 | (live.getRGB() & 0xFFFFFF);
+            }else{
+                densityColors[d] = new Color(
+                        deadColor.getRed() + (live.getRed() - deadColor.getRed()) * d / 255,
+                        deadColor.getGreen() + (live.getGreen() - deadColor.getGreen()) * d / 255,
+                        deadColor.getBlue() + (live.getBlue() - deadColor.getBlue()) * d / 255).getRGB();
+            }
+        }
+    }
+
+    /**
+     * @param col dot colour, or null for a blank cell
+     * @param cellSize diameter of the cell in pixels
+     * @return the ARGB pixels of a cell, row by row
+     */
+    private static int[] makeSprite(Color col, int cellSize){
+        BufferedImage sprite = new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_ARGB);
+        if (col != null) {
+            Graphics2D g2 = sprite.createGraphics();
+            g2.setColor(col);
+            if (cellSize < 4) {
+                // Too small for a dot to be visible
+                g2.fillRect(0, 0, cellSize, cellSize);
+            }else{
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                int padding = cellSize/10 >= 1 ? cellSize/10 : 1;
+                int diameter = cellSize - padding;
+                g2.fillOval(padding, padding, diameter, diameter);
+            }
+            g2.dispose();
+        }
+        return sprite.getRGB(0, 0, cellSize, cellSize, null, 0, cellSize);
     }
 
 //------------------------------------------------------
 //-------Coloring-------
-//------------------------------------------------------           
-    
+//------------------------------------------------------
+
     void setColorScheme(ColorScheme scheme){
         this.colorScheme = scheme;
-        for (Cell c : this) {
-            c.deadColor = colorScheme.deadCellColor;
-            if (c.isLive()) c.liveColor = colorScheme.randomCellColor();
-        }
+        colorSeed = random.nextLong();
+        this.makeSprites();
+        this.redrawAll();
         repaint();
-    }    
-    
+    }
+
     ColorScheme getColorScheme(){
         return this.colorScheme;
     }
-    
+
 //------------------------------------------------------
 //-------Actions-------
-//------------------------------------------------------    
-    
+//------------------------------------------------------
+
+    private Point lastDragCell;
+    private Point lastPanPoint;
+    /**
+     * The cells toggled since the left button was pressed, or null
+     */
+    private CellEdits stroke;
+
     @Override
     public void mouseClicked(MouseEvent e) {}
     @Override
-    public void mouseReleased(MouseEvent e) {}
+    public void mouseReleased(MouseEvent e) {
+        lastDragCell = null;
+        lastPanPoint = null;
+        if (stroke == null) return;
+        CellEdits edits = stroke;
+        stroke = null;
+        if (edits.size() > 0 && listeners != null) {
+            for (GameGridListener l : listeners.getListeners(GameGridListener.class)) {
+                l.cellsEdited(edits);
+            }
+        }
+    }
+    @Override
+    public void mouseEntered(MouseEvent e) {}
     @Override
     public void mouseExited(MouseEvent e) {}
+    @Override
+    public void mouseMoved(MouseEvent e) {}
 
     @Override
     public void mousePressed(MouseEvent e) {
-        Cell cell = (Cell)e.getSource();
-        this.toggleCellLiveState(cell);
+        if (!SwingUtilities.isLeftMouseButton(e)) {
+            lastPanPoint = e.getPoint();
+            return;
+        }
+        Point p = this.cellAtPoint(e.getX(), e.getY());
+        lastDragCell = p;
+        stroke = new CellEdits();
+        if (p != null) this.toggleCellLiveState(p.x, p.y);
     }
-    
+
+    /**
+     * Dragging with the left button toggles each cell the pointer enters; with another button, it pans
+     */
     @Override
-    public void mouseEntered(MouseEvent e) {
-        int mod = e.getModifiersEx();        
-        if (mod == MouseEvent.BUTTON1_DOWN_MASK) {            
-            Cell cell = (Cell)e.getSource();      
-            this.toggleCellLiveState(cell);
-        }
-    }      
-    
-    private void toggleCellLiveState(Cell cell){                
-        cell.setLive(!cell.isLive());
-        if (cell.isLive()) {
-            cell.liveColor = colorScheme.randomCellColor();
-        }        
-        if (listeners!=null) {
-            for (GameGridListener l : listeners.getListeners(GameGridListener.class)) {
-                l.cellClicked(cell);
-            }
-        }        
-        cell.repaint();
+    public void mouseDragged(MouseEvent e) {
+        if (lastPanPoint != null) {
+            this.pan(lastPanPoint.x - e.getX(), lastPanPoint.y - e.getY());
+            lastPanPoint = e.getPoint();
+            return;
+        }
+        if (stroke == null || e.getModifiersEx() != MouseEvent.BUTTON1_DOWN_MASK) return;
+        Point p = this.cellAtPoint(e.getX(), e.getY());
+        if (p == null || p.equals(lastDragCell)) return;
+        lastDragCell = p;
+        this.toggleCellLiveState(p.x, p.y);
+    }
+
+    /**
+     * The mouse wheel zooms around the pointer
+     */
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+        if (e.getWheelRotation() != 0) this.zoom(e.getWheelRotation(), e.getX(), e.getY());
+    }
+
+    private void toggleCellLiveState(int x, int y){
+        boolean live = !this.isShown(x, y);
+        shown[y * wordsPerRow + (x >>> 6)] ^= 1L << x;
+        this.drawCell(x, y);
+        stroke.add(x, y, live);
+        this.repaint(this.cellBounds(x, y));
+    }
+
+    /**
+     * Draws the cells of the stroke in progress over a state that does not have them yet
+     */
+    private void redrawStroke(){
+        int w = image.getWidth();
+        int h = image.getHeight();
+        for (int k = 0; k < stroke.size(); k++) {
+            int x = stroke.x(k);
+            int y = stroke.y(k);
+            if (this.isShown(x, y) == stroke.isLive(k)) continue;
+            shown[y * wordsPerRow + (x >>> 6)] ^= 1L << x;
+            if (scale < 1) continue;
+            this.drawCell(x, y);
+            Rectangle r = this.cellBounds(x, y).intersection(new Rectangle(0, 0, w, h));
+            if (!r.isEmpty()) this.markDirty(r.x, r.y, r.x + r.width - 1, r.y + r.height - 1);
+        }
     }
-    
+
     void addGridListener(GameGridListener el){
         if (listeners == null) {listeners = new EventListenerList();}
         listeners.add(GameGridListener.class, el);
     }
-    
-    
-    
+
+
+
 }
 
 //------------------------------------------------------
@@ -219,9 +777,12 @@ public class GameGrid extends JComponent implements Iterable<Cell>, MouseListene
  * @author thomdikdave
  */
 interface GameGridListener extends EventListener {
-    void cellClicked(Cell c);
+    /**
+     * Called when the user finishes a stroke of the mouse that toggled one or more cells
+     * @param edits the cells toggled, with their new live values
+     */
+    void cellsEdited(CellEdits edits);
     void gridDidResize();
 }
 
-    
 
@@ -2,36 +2,59 @@ package gameoflife;
 
 import java.awt.Dimension;
 import java.awt.Point;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import javax.swing.Timer;
 
 
 /**
- *
+ * Runs a game, stepping its <code>Simulation</code> on a <code>SimulationThread</code> and showing the
+ * generations published by the thread on its <code>GameGrid</code>. Every change to the simulation goes
+ * through the thread, so the Event Dispatch Thread never waits for a generation while the game is running.
  * @author thomdikdave
  */
-public class GameModel implements GameGridListener, ActionListener {
+public class GameModel implements GameGridListener {
     public static final int Geometry_EuclideanFlat = 0;
     public static final int Geometry_EuclideanTorus = 1;       
+    public static final int Geometry_UnboundedPlane = 2;
+    public static final int Geometry_Custom = -1;
+    public static final int Engine_Cellwise = 0;
+    public static final int Engine_Bitwise = 1;
+    public static final int Engine_Parallel = 2;
+    public static final int Engine_HashLife = 3;
+    public static final int Engine_Sparse = 4;
+    public static final int Engine_NeighbourCount = 5;
+    public static final int Engine_Vector = 6;
+    public static final int Engine_StableTiles = 7;
+    public static final int Engine_Custom = -1;
     
     final GameGrid grid;
-    GameState initialState;
-    GameState currentState;
+    final Simulation simulation;
+    final SimulationThread simulationThread;
+    /**
+     * The snapshot the grid displays, if it is not displaying the simulation's state itself
+     */
+    private SimulationThread.Snapshot shownSnapshot;
     GameModelDelegate delegate;                
         
-    int iteration=0;
-    Timer timer;
+    private int delay = 150;
+    /**
+     * Generation of the state shown on the grid
+     */
+    private long iteration = 0;
+    private long initialIteration = 0;
+    private int period = 0;
+    private boolean pausesOnCycle = false;
+    /**
+     * True from a seek handed to the simulation thread until the grid shows it stopped
+     */
+    private boolean seeking = false;
     private Dimension size;
     public Dimension size(){return (Dimension)size.clone();}
     
     //Initiallising         
     
     public void newGame(){
-        iteration = 0;
-        initialState = new GameState(size);        
-        currentState = initialState;
-        grid.setState(currentState);
+        GameState state = new GameState(size);
+        initialIteration = 0;
+        this.changeSimulation(() -> simulation.load(state));
         if (delegate!=null) delegate.gameDidRenew();
     }
     
@@ -39,89 +62,242 @@ public class GameModel implements GameGridListener, ActionListener {
         this.size = size;
         grid = new GameGrid(size);
         grid.addGridListener(this);
-        initialState = new GameState(size);    
-        currentState = initialState;
-        grid.setState(currentState);
+        simulation = new Simulation(new GameState(size), makeGeometry(Geometry_EuclideanFlat), makeEngine(Engine_Bitwise, threadCount));
+        simulation.setTracksChanges(true);
+        simulation.setDetectsCycles(true);
+        simulation.setRecordsHistory(true);
+        grid.setState(simulation.getCurrentState());
         
-        timer = new Timer(150, this);        
-        geometry = this.makeGeometry_EuclideanFlat();
+        simulationThread = new SimulationThread(simulation, this::showSnapshot);
+        simulationThread.setDelay(delay);
         geometryIndex = Geometry_EuclideanFlat;       
+        engineIndex = Engine_Bitwise;
     }
     
     //Methods/variables for iteration analysis
-    private GameGeometry geometry;
     private int geometryIndex;
     
     public int getGeometry(){return geometryIndex;}
     
     public void setGeometry(int geo){
+        GameGeometry geometry = makeGeometry(geo);
+        simulationThread.execute(() -> simulation.setGeometry(geometry));
+        geometryIndex = geo;
+    }    
+    
+    /**
+     * Sets a custom geometry. <code>getGeometry()</code> will return <code>Geometry_Custom</code> afterwards.
+     * @param geo the new geometry
+     */
+    public void setGeometry(GameGeometry geo){
+        simulationThread.execute(() -> simulation.setGeometry(geo));
+        geometryIndex = Geometry_Custom;
+    }
+    
+    /**
+     * @param geo one of the <code>Geometry_</code> constants other than <code>Geometry_Custom</code>
+     * @return a new geometry of that kind
+     */
+    static GameGeometry makeGeometry(int geo){
         switch (geo) {
             case Geometry_EuclideanFlat:
-                geometry = this.makeGeometry_EuclideanFlat();
-                break;
+                return makeGeometry_EuclideanFlat();
             case Geometry_EuclideanTorus:
-                geometry = this.makeGeometry_EuclideanTorus();
-                break;
+                return makeGeometry_EuclideanTorus();
+            case Geometry_UnboundedPlane:
+                return makeGeometry_UnboundedPlane();
             default:
                 throw new AssertionError();
         }
-        geometryIndex = geo;
-    }    
+    }
     
     //Private geometry factory methods
-    private GameGeometry makeGeometry_EuclideanFlat(){
+    private static GameGeometry makeGeometry_EuclideanFlat(){
         return new GameGeometry() {
             @Override
-            Point[] getAdjacentPoint(Point p) {
-                Point[] out = new Point[8];
-                int leftX = p.x-1;
-                int rightX = p.x+1;
-                int topY = p.y-1;
-                int bottomY = p.y+1;
-
-                if (topY>=0) {
-                    if (leftX>=0) { out[0] = new Point(leftX, topY); }
-                    out[1] = new Point (p.x, topY);
-                    if (rightX<size.width) { out[2] = new Point(rightX, topY); }
-                }
-                if (leftX>=0) {out[3] = new Point(leftX, p.y);}
-                if (rightX<size.width) {out[4] = new Point(rightX, p.y);}
-                if (bottomY<size.height) {
-                    if (leftX>=0) {out[5] = new Point(leftX, bottomY);}
-                    out[6] = new Point(p.x, bottomY);
-                    if (rightX<size.width) {out[7] = new Point(rightX, bottomY);}
-                }
-                return out;
+            public int wrapColumn(int x, int width) {
+                return x >= 0 && x < width ? x : -1;
+            }
+            @Override
+            public int wrapRow(int y, int height) {
+                return y >= 0 && y < height ? y : -1;
+            }
+        };
+    }
+    
+    /**
+     * The grid is a window onto an unbounded plane. The lookup tables are the same as the flat geometry's, 
+     * for engines that do not support unbounded geometries; those are replaced by a <code>TiledPlaneEngine</code>.
+     */
+    private static GameGeometry makeGeometry_UnboundedPlane(){
+        return new GameGeometry() {
+            @Override
+            public int wrapColumn(int x, int width) {
+                return x >= 0 && x < width ? x : -1;
+            }
+            @Override
+            public int wrapRow(int y, int height) {
+                return y >= 0 && y < height ? y : -1;
+            }
+            @Override
+            public boolean isUnbounded() {
+                return true;
             }
         };
     }
     
-    private GameGeometry makeGeometry_EuclideanTorus(){
+    private static GameGeometry makeGeometry_EuclideanTorus(){
         return new GameGeometry() {
             @Override
-            Point[] getAdjacentPoint(Point p) {
-                int leftX = p.x-1>=0 ?          p.x-1:
-                                                size.width-1;
-                int rightX = p.x+1<size.width?  p.x+1:
-                                                0;
-                int topY = p.y-1>=0?            p.y-1:
-                                                size.height-1;
-                int bottomY = p.y+1<size.height?p.y+1:
-                                                0;                        
-                return new Point[]{
-                    new Point(leftX, topY),
-                    new Point (p.x, topY),
-                    new Point(rightX, topY),
-                    new Point(leftX, p.y),
-                    new Point(rightX, p.y),
-                    new Point(leftX, bottomY),
-                    new Point(p.x, bottomY),
-                    new Point(rightX, bottomY),                                
-                };
+            public int wrapColumn(int x, int width) {
+                return x < 0 ?          width-1:
+                       x >= width ?     0:
+                                        x;
+            }
+            @Override
+            public int wrapRow(int y, int height) {
+                return y < 0 ?          height-1:
+                       y >= height ?    0:
+                                        y;
+            }
+        };
+    }
+    
+    
+    //Engine
+    private int engineIndex;
+    
+    public int getEngine(){return engineIndex;}
+    
+    public void setEngine(int eng){
+        GameEngine engine = makeEngine(eng, threadCount);
+        simulationThread.execute(() -> simulation.setEngine(engine));
+        engineIndex = eng;
+    }
+    
+    /**
+     * @param eng one of the <code>Engine_</code> constants other than <code>Engine_Custom</code>
+     * @param threads thread count for <code>Engine_Parallel</code>
+     * @return a new engine of that kind
+     */
+    static GameEngine makeEngine(int eng, int threads){
+        switch (eng) {
+            case Engine_Cellwise:
+                return makeEngine_Cellwise();
+            case Engine_Bitwise:
+                return new BitwiseEngine();
+            case Engine_Parallel:
+                return new ParallelEngine(threads);
+            case Engine_HashLife:
+                return new HashLifeEngine();
+            case Engine_Sparse:
+                return new SparseEngine();
+            case Engine_NeighbourCount:
+                return new NeighbourCountEngine();
+            case Engine_Vector:
+                GameEngine vector = makeEngine_Vector();
+                return vector != null ? vector : new BitwiseEngine();
+            case Engine_StableTiles:
+                return new StableTileEngine();
+            default:
+                throw new AssertionError();
+        }
+    }
+    
+    /**
+     * Sets a custom engine. <code>getEngine()</code> will return <code>Engine_Custom</code> afterwards.
+     * @param eng the new engine
+     */
+    public void setEngine(GameEngine eng){
+        simulationThread.execute(() -> simulation.setEngine(eng));
+        engineIndex = Engine_Custom;
+    }
+    
+    private Rule rule = Rule.conway;
+    
+    /**
+     * Sets the rule the game follows from the next generation on. Every built-in engine follows any rule.
+     * @param rule
+     * @throws UnsupportedOperationException if the game is paused and a custom engine is set that cannot follow
+     * <code>rule</code>
+     */
+    public void setRule(Rule rule){
+        simulationThread.execute(() -> simulation.setRule(rule));
+        this.rule = rule;
+    }
+    public Rule getRule(){
+        return rule;
+    }
+    
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * Sets the number of threads used by <code>Engine_Parallel</code>. Defaults to the number of available processors.
+     * @param threads thread count (at least 1)
+     */
+    public void setThreadCount(int threads){
+        if (threads < 1) throw new IllegalArgumentException("Thread count must be at least 1");
+        threadCount = threads;
+        if (engineIndex == Engine_Parallel) {
+            this.setEngine(Engine_Parallel);
+        }
+    }
+    public int getThreadCount(){
+        return threadCount;
+    }
+    
+    /**
+     * The Vector API engine is built separately (from src-vector, with Java 16 or later) and only runs when the
+     * JVM is started with <code>--add-modules jdk.incubator.vector</code>, so it is loaded by name, and
+     * <code>Engine_Vector</code> gives a <code>BitwiseEngine</code> when it cannot be.
+     * @return a new <code>VectorEngine</code>, or null if it is missing or the Vector API is not available
+     */
+    static GameEngine makeEngine_Vector(){
+        try {
+            return (GameEngine)Class.forName("gameoflife.VectorEngine").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+    
+    /**
+     * @return true if <code>Engine_Vector</code> steps with the Vector API, rather than falling back to
+     * <code>Engine_Bitwise</code>
+     */
+    public static boolean isVectorEngineAvailable(){
+        return makeEngine_Vector() != null;
+    }
+    
+    private static GameEngine makeEngine_Cellwise(){
+        return new GameEngine() {
+            private Rule rule = Rule.conway;
+            
+            @Override
+            public void nextGeneration(GameState current, GameState next, GameGeometry geo) {
+                current.getNextGenerationState(geo, rule, next);
+            }
+            
+            @Override
+            public void setRule(Rule rule) {
+                this.rule = rule;
             }
         };
     }
     
+    //Double buffering
+    /**
+     * When double buffered (the default), the model owns two states and each iteration writes into whichever
+     * of them is not current, so no states are allocated in steady state. States returned by 
+     * <code>getCurrentState()</code> are then overwritten two iterations later; switch this off if they must
+     * be kept. The initial state is never written to.
+     * @param doubleBuffered 
+     */
+    public void setDoubleBuffered(boolean doubleBuffered){
+        simulationThread.execute(() -> simulation.setDoubleBuffered(doubleBuffered));
+    }
+    public boolean isDoubleBuffered(){
+        return simulation.isDoubleBuffered();
+    }
     
     //Setting / Getting
     public void setSize(Dimension newSize){
@@ -133,67 +309,181 @@ public class GameModel implements GameGridListener, ActionListener {
 //        grid = g;
 //    }  
     
+    /**
+     * @return the component the game is displayed in
+     */
+    public GameGrid getGrid(){
+        return grid;
+    }
+    
+    /**
+     * @return the simulation's current state. While the game is running this is being written to by the
+     * simulation thread; use <code>grid.getState()</code> for the state displayed.
+     */
+    public GameState getCurrentState(){
+        return simulation.getCurrentState();
+    }
+    
+    /**
+     * @return the generation shown on the grid
+     */
+    public long getIteration(){
+        return iteration;
+    }
+    
     public void loadState(GameState state){
-        timer.stop();
-        iteration = 0;
+        this.loadState(state, 0);
+    }
+    
+    /**
+     * Loads a saved board, at its generation, with its rule and, unless it was saved with a custom geometry, in
+     * its geometry.
+     * @param snapshot
+     */
+    public void loadSnapshot(BoardSnapshot snapshot){
+        if (snapshot.geometry != Geometry_Custom) this.setGeometry(snapshot.geometry);
+        this.setRule(snapshot.rule);
+        this.loadState(snapshot.state, snapshot.generation);
+    }
+    
+    private void loadState(GameState state, long generation){
+        simulationThread.stop();
         if (!size.equals(state.size)){
             size = state.size;            
         }
-        initialState = state;
-        currentState = initialState;
-        grid.setState(currentState);
+        initialIteration = generation;
+        this.changeSimulation(() -> simulation.load(state, generation));
         if (delegate!=null){delegate.gameDidReset();}
     }
     
+    /**
+     * @return the board shown on the grid, with its geometry, generation and rule
+     */
+    public BoardSnapshot getSnapshot(){
+        return new BoardSnapshot(grid.getState(), geometryIndex, iteration, rule);
+    }
+    
     // Speed = iterations per 10000ms (10s)    
     public void setSpeed(int speed){        
-        timer.setDelay(10000 / speed);
+        delay = 10000 / speed;
+        simulationThread.setDelay(delay);
     }
     public int getSpeed(){
-        return 10000 / timer.getDelay();
+        return 10000 / delay;
     }
     
     //Game Behaviour
     public void reset(){
-        timer.stop();
-        iteration = 0;
-        currentState = initialState;
-        grid.setState(currentState);
+        simulationThread.stop();
+        this.changeSimulation(simulation::reset);
         if (delegate!=null){delegate.gameDidReset();}
     }    
     
     public void start(){ 
-        timer.start(); 
+        seeking = false;
+        simulationThread.start(); 
         if (delegate!=null){ delegate.gameDidStart();}
     }
     public void pause(){
-        timer.stop();
+        seeking = false;
+        simulationThread.stop();
         if (delegate!=null){ delegate.gameDidPause();}
     }
     
+    /**
+     * @param pausesOnCycle true to pause the game once the board settles into a still life or oscillator
+     */
+    public void setPausesOnCycle(boolean pausesOnCycle){
+        this.pausesOnCycle = pausesOnCycle;
+        if (pausesOnCycle && period > 0 && this.isRunning() && !simulationThread.isSeeking()) this.pause();
+    }
+    public boolean pausesOnCycle(){
+        return pausesOnCycle;
+    }
+    
     //Querying
     public boolean isRunning(){
-        return timer.isRunning();
+        return simulationThread.isRunning();
     }
     public boolean isReset(){
-        return iteration==0;
+        return iteration==initialIteration;
+    }
+    
+    /**
+     * @return the period the generation shown repeats with (1 for a still life), or 0 if it is not known to
+     * repeat. Boards on the unbounded plane are never reported as repeating.
+     */
+    public int getPeriod(){
+        return period;
     }
     
     
     //Actions
     
+    /**
+     * Advances the game by one generation: straight away if the game is paused, otherwise between the
+     * generations of the simulation thread
+     */
     public void updateIteration(){
-        currentState = currentState.getNextGenerationState(geometry);
-        grid.setState(currentState);
-        iteration++;
+        if (this.changeSimulation(simulation::step) && delegate!=null) delegate.gameDidIterate();
+    }
+    
+    /**
+     * Advances the game by 2<sup>log2Generations</sup> generations at once. Only supported by 
+     * <code>Engine_HashLife</code>, which treats the grid as a window onto an unbounded plane for the jump:
+     * cells that leave the grid are kept, and may return later.
+     * @param log2Generations base-2 logarithm of the number of generations to advance (0-60)
+     * @throws IllegalStateException if the engine is not <code>Engine_HashLife</code>, or the geometry wraps around
+     */
+    public void jump(int log2Generations){
+        if (this.changeSimulation(() -> simulation.jump(log2Generations)) && delegate!=null) delegate.gameDidIterate();
+    }
+    
+    /**
+     * Pauses the game and returns to the previous generation, if it is still held in the simulation's history
+     */
+    public void stepBack(){
+        if (this.isRunning()) this.pause();
+        boolean[] stepped = new boolean[1];
+        this.changeSimulation(() -> {
+            stepped[0] = simulation.canStepBack();
+            if (stepped[0]) simulation.stepBack();
+        });
+        if (stepped[0] && delegate!=null) delegate.gameDidIterate();
+    }
+    
+    /**
+     * Pauses the game and moves to <code>generation</code>: rebuilt from the simulation's history if it is held
+     * there, or the earliest generation held if it is earlier than that. A later generation is reached on the
+     * simulation thread, which runs, showing the generations on the way, until it gets there or the game is
+     * paused, started or reset.
+     * @param generation
+     */
+    public void seek(long generation){
+        if (this.isRunning()) this.pause();
+        this.changeSimulation(() -> {
+            long target = Math.max(generation, simulation.getEarliestGeneration());
+            simulation.seek(Math.min(target, simulation.getLatestHeldGeneration()));
+        });
         if (delegate!=null) delegate.gameDidIterate();
+        if (generation > iteration) {
+            seeking = true;
+            simulationThread.seek(generation);
+            if (delegate!=null) delegate.gameDidStart();
+        }
+    }
+    
+    /**
+     * @return the earliest generation <code>seek</code> can return to. Only meaningful while the game is paused.
+     */
+    public long getEarliestIteration(){
+        return simulation.getEarliestGeneration();
     }
     
     // Grid Listener Methods
     @Override
-    public void cellClicked(Cell c) {
-        Point p = grid.cells.getPointForValue(c);
-        currentState.setValueAtPoint(c.isLive(), p);
+    public void cellsEdited(CellEdits edits) {
+        simulationThread.execute(changes -> edits.applyTo(simulation.getCurrentState(), changes));
     }
 
     @Override
@@ -201,14 +491,131 @@ public class GameModel implements GameGridListener, ActionListener {
         if (delegate!=null) delegate.gridDidResize();
     }
     
-    // Called on every iteration of the timer
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        updateIteration();
+    //Simulation thread
+    
+    /**
+     * Applies <code>change</code> to the simulation through the simulation thread. If the game is paused the
+     * change is made straight away and the grid updated; otherwise it is made between generations and
+     * shown with the next one.
+     * @return true if the grid was updated
+     */
+    private boolean changeSimulation(Runnable change){
+        boolean running = simulationThread.isRunning();
+        simulationThread.execute(change);
+        if (running) return false;
+        boolean behind = simulationThread.discardFrames();
+        grid.setState(simulation.getCurrentState(), behind ? null : simulation.getChanges());
+        simulationThread.recycle(shownSnapshot);
+        shownSnapshot = null;
+        iteration = simulation.getGeneration();
+        this.updatePeriod(simulation.getPeriod());
+        return true;
+    }
+    
+    /**
+     * Shows the latest generation published by the simulation thread. Called on the Event Dispatch Thread.
+     */
+    private void showSnapshot(){
+        SimulationThread.Snapshot snapshot = simulationThread.takeSnapshot();
+        if (snapshot == null) return;
+        grid.setState(snapshot.state, snapshot.changes);
+        simulationThread.recycle(shownSnapshot);
+        shownSnapshot = snapshot;
+        iteration = snapshot.generation;
+        if (delegate!=null) delegate.gameDidIterate();
+        this.updatePeriod(snapshot.period);
+        if (seeking && !this.isRunning()) {
+            seeking = false;
+            if (delegate!=null) delegate.gameDidPause();
+        }
+    }
+    
+    /**
+     * Notes the period of the generation shown, telling the delegate (and pausing, if set to) when the board
+     * starts repeating
+     */
+    private void updatePeriod(int newPeriod){
+        if (newPeriod == period) return;
+        period = newPeriod;
+        if (period == 0) return;
+        if (pausesOnCycle && this.isRunning() && !simulationThread.isSeeking()) this.pause();
+        if (delegate!=null) delegate.gameDidCycle(period);
     }
 
     //Geometry class
-    public abstract class GameGeometry{
+    /**
+     * Determines which cells are adjacent to each other. Rather than returning neighbours as objects, a geometry
+     * maps the rows and columns one step outside the grid onto the rows and columns they refer to (if any).
+     * These mappings are cached per grid size as lookup tables, so engines can find every neighbour of
+     * every cell without allocating.
+     * <p>Within the grid, <code>wrapColumn</code> and <code>wrapRow</code> are expected to return their argument.</p>
+     */
+    public static abstract class GameGeometry{
+        private int[] columnTable = new int[0];
+        private int[] rowTable = new int[0];
+        private int tableWidth = -1;
+        private int tableHeight = -1;
+        
+        /**
+         * @param x column in the range -1 to <code>width</code> inclusive
+         * @param width grid width
+         * @return the column x refers to, or -1 if it does not exist
+         */
+        public abstract int wrapColumn(int x, int width);
+        
+        /**
+         * @param y row in the range -1 to <code>height</code> inclusive
+         * @param height grid height
+         * @return the row y refers to, or -1 if it does not exist
+         */
+        public abstract int wrapRow(int y, int height);
+        
+        /**
+         * An unbounded geometry treats the grid as a window onto an infinite plane, with its top-left corner at
+         * (0,0). Its lookup tables describe only the window, and are used as the flat geometry's would be by
+         * engines without support for unbounded geometries.
+         * @return false unless overridden
+         */
+        public boolean isUnbounded(){
+            return false;
+        }
+        
+        /**
+         * Returns the lookup table for <code>wrapColumn</code>: entry <code>x+1</code> holds 
+         * <code>wrapColumn(x, width)</code> for x from -1 to <code>width</code>.
+         * @param width grid width
+         * @return column table (<code>width + 2</code> entries). Must not be modified.
+         */
+        public final int[] columnTable(int width){
+            if (tableWidth != width) {
+                int[] table = new int[width + 2];
+                for (int x = -1; x <= width; x++) {
+                    table[x + 1] = this.wrapColumn(x, width);
+                }
+                columnTable = table;
+                tableWidth = width;
+            }
+            return columnTable;
+        }
+        
+        /**
+         * Returns the lookup table for <code>wrapRow</code>: entry <code>y+1</code> holds 
+         * <code>wrapRow(y, height)</code> for y from -1 to <code>height</code>.
+         * @param height grid height
+         * @return row table (<code>height + 2</code> entries). Must not be modified.
+         */
+        public final int[] rowTable(int height){
+            if (tableHeight != height) {
+                int[] table = new int[height + 2];
+                for (int y = -1; y <= height; y++) {
+                    table[y + 1] = this.wrapRow(y, height);
+                }
+                rowTable = table;
+                tableHeight = height;
+            }
+            return rowTable;
+        }
+        
         /**
          * Returns the adjacent points in a size-8 Point array in order left to right, top to bottom:<br/>
          * <ol>
@@ -221,16 +628,38 @@ public class GameModel implements GameGridListener, ActionListener {
          *   <li>bottom-middle</li>
          *    <li>bottom-right</li>
          * </ol>
+         * Points that do not exist are null. This allocates; engines should use the lookup tables instead.
          * 
          * @param p central point
+         * @param size grid size
          * @return 
          */
-        abstract Point[] getAdjacentPoint(Point p);   
+        Point[] getAdjacentPoint(Point p, Dimension size){
+            int[] columns = this.columnTable(size.width);
+            int[] rows = this.rowTable(size.height);
+            Point[] out = new Point[8];
+            int i = 0;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (dx == 0 && dy == 0) continue;
+                    int x = columns[p.x + 1 + dx];
+                    int y = rows[p.y + 1 + dy];
+                    if (x >= 0 && y >= 0) out[i] = new Point(x, y);
+                    i++;
+                }
+            }
+            return out;
+        }
     }    
 }
 
 interface GameModelDelegate {
     void gameDidIterate();
+    /**
+     * Called when the board starts repeating
+     * @param period 1 for a still life, otherwise the period of the oscillation
+     */
+    void gameDidCycle(int period);
     void gameDidStart();
     void gameDidPause();
     void gameDidReset();
@@ -2,26 +2,40 @@ package gameoflife;
 
 import java.awt.Dimension;
 import java.awt.Point;
-import java.lang.reflect.Array;
-import java.util.Iterator;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 
 /**
- *
+ * Bit-packed representation of a game state. Cells are stored row-major, 64 to a <code>long</code>:
+ * the cell at (x, y) is bit <code>x % 64</code> of word <code>y * wordsPerRow + x / 64</code>.
+ * <p>Bits beyond <code>size.width</code> in the last word of each row are always zero.</p>
+ * <p>Cells can also be addressed by index, <code>y * size.width + x</code>, as the entries of a
+ * <code>ByteGrid</code> or <code>IntGrid</code> of the same size are; <code>nextLiveCell</code> visits the live
+ * cells in that order a word at a time.</p>
  * @author thomdikdave
  */
-public class GameState extends Grid<Boolean> {
-    
+public class GameState implements Cloneable {
+    public final Dimension size;
+    final int wordsPerRow;
+    long[] words;
+    /**
+     * Incremented on every edit (<code>setValueAtPoint</code>, <code>clear</code>, <code>copyFrom</code>), so engines holding their own copy of the board
+     * can tell when the state has been edited
+     */
+    int modCount;
+
     public GameState(int size){
-        this(new Dimension(size, size));        
+        this(new Dimension(size, size));
     }
     public GameState(int width, int height){
         this(new Dimension(width, height));
     }
     public GameState(Dimension size){
-        super(size);
-        this.populateGrid(()-> false);
+        this.size = (Dimension)size.clone();
+        this.wordsPerRow = (size.width + 63) >>> 6;
+        this.words = new long[wordsPerRow * size.height];
     }
-    
+
     public static GameState readStateFromStrings(String[] strings){
         int maxWidth = 0;
         for (String s : strings) {
@@ -38,52 +52,211 @@ public class GameState extends Grid<Boolean> {
         }
         return out;
     }
-    
+
+    /**
+     * Reads a state from a pattern in either of the formats of <code>PatternIO</code>
+     * @param s
+     * @throws UncheckedIOException if the pattern is malformed
+     */
     public static GameState readStateFromString(String s){
-        String[] split = s.split("\n");
-        return GameState.readStateFromStrings(split);
+        return PatternIO.readString(s);
+    }
+
+    //Setting / Getting
+
+    public boolean getValueAtPoint(Point p){
+        return this.getValueAtPoint(p.x, p.y);
     }
-    
+    public boolean getValueAtPoint(int x, int y){
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     *
+     * @param in the new live value
+     * @param p point of entry
+     * @return the old live value
+     */
+    public boolean setValueAtPoint(boolean in, Point p){
+        return this.setValueAtPoint(in, p.x, p.y);
+    }
+    public boolean setValueAtPoint(boolean in, int x, int y){
+        int i = y * wordsPerRow + (x >>> 6);
+        long mask = 1L << x;
+        modCount++;
+        boolean out = (words[i] & mask) != 0;
+        if (in) {
+            words[i] |= mask;
+        }else{
+            words[i] &= ~mask;
+        }
+        return out;
+    }
+
+    //Bulk
+
+    /**
+     * @return the number of live cells
+     */
+    public int countLiveCells(){
+        int out = 0;
+        for (long word : words) {
+            out += Long.bitCount(word);
+        }
+        return out;
+    }
+
+    /**
+     * @param from a cell index, <code>y * size.width + x</code>
+     * @return the index of the first live cell at or after <code>from</code>, or -1 if there is none
+     */
+    public int nextLiveCell(int from){
+        int width = size.width;
+        if (width == 0) return -1;
+        int x = from % width;
+        for (int y = from / width; y < size.height; y++, x = 0) {
+            int row = y * wordsPerRow;
+            for (; x < width; x = (x | 63) + 1) {
+                long word = words[row + (x >>> 6)] & (-1L << x);
+                if (word != 0) return y * width + (x & ~63) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Kills every cell
+     */
+    public void clear(){
+        modCount++;
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * Copies every cell of <code>other</code>, a state of the same size
+     */
+    public void copyFrom(GameState other){
+        modCount++;
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    //Neighbours
+
     public int countLives(Point[] points){
         int out = 0;
         for (Point p : points) {
             if (p!=null && this.getValueAtPoint(p)) out++;
         }
         return out;
-    }       
-    
-    public GameState getNextGenerationState(GameModel.GameGeometry geo){        
-        GameState out = (GameState)this.clone();
-        for (Iterator<Point> it = this.iteratePoints(); it.hasNext();){
-            Point p = it.next();
-            Point[] adjacents = geo.getAdjacentPoint(p);
-            
-            boolean isLiving = this.getValueAtPoint(p);
-            int adjLives = this.countLives(adjacents);
-            
-            if (isLiving && adjLives < 2) { // Underpopulation
-                out.setValueAtPoint(false, p);
-            }else if (isLiving && adjLives > 3){ // Overcrowding
-                out.setValueAtPoint(false, p);
-            }else if (!isLiving && adjLives == 3){ //Creation
-                out.setValueAtPoint(true, p);
-            } // else nothing changes;
+    }
+
+    /**
+     * Counts the live cells adjacent to (x, y) without allocating.
+     * @param columns column table of the geometry, see <code>GameGeometry.columnTable</code>
+     * @param rows row table of the geometry, see <code>GameGeometry.rowTable</code>
+     * @return number of live adjacent cells (0-8)
+     */
+    public int countLives(int x, int y, int[] columns, int[] rows){
+        int out = 0;
+        for (int dy = 0; dy <= 2; dy++) {
+            int row = rows[y + dy];
+            if (row < 0) continue;
+            for (int dx = 0; dx <= 2; dx++) {
+                int column = columns[x + dx];
+                if (column < 0 || (dx == 1 && dy == 1)) continue;
+                if (this.getValueAtPoint(column, row)) out++;
+            }
+        }
+        return out;
+    }
+
+    public GameState getNextGenerationState(GameModel.GameGeometry geo){
+        GameState out = new GameState(size);
+        this.getNextGenerationState(geo, out);
+        return out;
+    }
+
+    /**
+     * Evaluates Conway's rules one cell at a time, writing the next generation into <code>out</code>
+     * @param geo geometry determining the adjacent points of each cell
+     * @param out state of the same size to write to, every cell of which is overwritten
+     */
+    public void getNextGenerationState(GameModel.GameGeometry geo, GameState out){
+        this.getNextGenerationState(geo, Rule.conway, out);
+    }
+
+    /**
+     * Evaluates <code>rule</code> one cell at a time, writing the next generation into <code>out</code>. Each row
+     * is scanned with the cell's 3x3 neighbourhood held as 9 bits, a column of three cells being shifted in at
+     * each step, and the next state is looked up from the neighbourhood (see
+     * <code>Rule.neighbourhoodResults</code>).
+     * @param geo geometry determining the adjacent points of each cell
+     * @param rule the rule to apply
+     * @param out state of the same size to write to, every cell of which is overwritten
+     */
+    public void getNextGenerationState(GameModel.GameGeometry geo, Rule rule, GameState out){
+        int[] columns = geo.columnTable(size.width);
+        int[] rows = geo.rowTable(size.height);
+        byte[] results = rule.neighbourhoodResults();
+        for (int y = 0; y < size.height; y++) {
+            int north = rows[y];
+            int centre = rows[y + 1];
+            int south = rows[y + 2];
+            int neighbourhood = this.column(columns[0], north, centre, south) << 3
+                    | this.column(columns[1], north, centre, south) << 6;
+            for (int x = 0; x < size.width; x++) {
+                neighbourhood = neighbourhood >>> 3 | this.column(columns[x + 2], north, centre, south) << 6;
+                out.setValueAtPoint(results[neighbourhood] != 0, x, y);
+            }
         }
+    }
+
+    /**
+     * @return the cells of <code>column</code> in the three rows given as bits 0 to 2, with missing columns and
+     * rows (-1) dead
+     */
+    private int column(int column, int north, int centre, int south){
+        if (column < 0) return 0;
+        int out = 0;
+        if (north >= 0 && this.getValueAtPoint(column, north)) out |= 1;
+        if (centre >= 0 && this.getValueAtPoint(column, centre)) out |= 2;
+        if (south >= 0 && this.getValueAtPoint(column, south)) out |= 4;
         return out;
     }
-    
+
     @Override
     public String toString() {
-        String out = "";        
-        for (Iterator<Point>it = this.iteratePoints(); it.hasNext();){
-            Point p = it.next();
-            boolean val = this.getValueAtPoint(p);
-            out += val? "*":"-";
-            if (p.x==size.width-1 && p.y<size.height-1) out += "\n";
+        StringBuilder out = new StringBuilder(size.height * (size.width + 1));
+        for (int y = 0; y < size.height; y++) {
+            if (y > 0) out.append('\n');
+            for (int x = 0; x < size.width; x++) {
+                out.append(this.getValueAtPoint(x, y) ? '*' : '-');
+            }
+        }
+        return out.toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof GameState)) return false;
+        GameState other = (GameState)obj;
+        return size.equals(other.size) && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size.hashCode() + Arrays.hashCode(words);
+    }
+
+    @Override
+    protected Object clone() {
+        try {
+            GameState out = (GameState)super.clone();
+            out.words = words.clone();
+            return out;
+        } catch (CloneNotSupportedException ex) {
+            throw new java.lang.InternalError();
         }
-        return out;
     }
-    
-    
 
 }
@@ -0,0 +1,387 @@
+package gameoflife;
+
+import java.util.Arrays;
+
+/**
+ * The recent generations of a board, kept so a game can be stepped backwards or moved to any generation it has
+ * passed through. Each generation is stored as a delta from the one before: the XOR of the words that changed,
+ * holding its births and deaths together, so the same delta steps either way. Every
+ * <code>keyframeInterval</code> generations the whole board is stored too (just its non-empty words, when that
+ * is smaller). A generation is rebuilt from the nearest whole board, be it the keyframe before it, the keyframe
+ * after it or the current board, by applying the deltas in between, so the time taken is proportional to the
+ * distance from it.
+ * <p>When the memory used passes <code>memoryLimit</code>, the oldest keyframe is dropped with its deltas. A
+ * board too large for two keyframes to fit in the limit is not recorded at all.</p>
+ * @author thomdikdave
+ */
+class GenerationHistory {
+    static final int defaultKeyframeInterval = 32;
+    static final long defaultMemoryLimit = 64L << 20;
+
+    private final int keyframeInterval;
+    private final long memoryLimit;
+
+    /**
+     * A ring of consecutive generations, the first at <code>frames[head]</code> being generation
+     * <code>earliest</code>. The first frame is always a keyframe.
+     */
+    private Frame[] frames = new Frame[64];
+    private int head;
+    private int count;
+    private long earliest;
+    private int wordCount;
+    private long bytes;
+
+    /**
+     * The board last recorded or restored, and its modification count at the time, so edits can be noticed
+     */
+    private GameState state;
+    private int modCount;
+
+    GenerationHistory(){
+        this(defaultKeyframeInterval, defaultMemoryLimit);
+    }
+
+    /**
+     * @param keyframeInterval the most generations between keyframes
+     * @param memoryLimit the approximate number of bytes the history may use
+     */
+    GenerationHistory(int keyframeInterval, long memoryLimit){
+        this.keyframeInterval = keyframeInterval;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Forgets every generation
+     */
+    void clear(){
+        Arrays.fill(frames, null);
+        head = 0;
+        count = 0;
+        bytes = 0;
+        state = null;
+    }
+
+    /**
+     * @return true if <code>generation</code> can be restored
+     */
+    boolean contains(long generation){
+        return count > 0 && generation >= earliest && generation - earliest < count;
+    }
+
+    /**
+     * @return the first generation held, meaningless if none are
+     */
+    long getEarliestGeneration(){
+        return earliest;
+    }
+
+    /**
+     * @return the last generation held, meaningless if none are
+     */
+    long getLatestGeneration(){
+        return earliest + count - 1;
+    }
+
+    /**
+     * @return true if <code>current</code> is the board last recorded or restored, and has not been edited since
+     */
+    boolean isCurrent(GameState current){
+        return current == state && current.modCount == modCount;
+    }
+
+    /**
+     * Records the generation following <code>previous</code>, replacing any generations held after
+     * <code>previous</code>, which were on another course. If <code>previous</code> is not the board last
+     * recorded or restored, because it was edited or replaced, it is stored as a new keyframe first.
+     * @param previous the state that was advanced
+     * @param current the state it was advanced to
+     * @param changes the words that changed between them, or null to compare every word
+     * @param generation the generation of <code>current</code>
+     */
+    void record(GameState previous, GameState current, ChangeSet changes, long generation){
+        if (current.words.length * 16L > memoryLimit) {
+            this.clear();
+            return;
+        }
+        long previousGeneration = generation - 1;
+        if (count > 0 && current.words.length == wordCount && this.contains(previousGeneration)) {
+            if (this.isCurrent(previous)) {
+                this.truncate(previousGeneration + 1);
+            }else{
+                this.truncate(previousGeneration);
+                this.append(new Frame(null, Words.of(previous.words)));
+            }
+        }else{
+            this.clear();
+            earliest = previousGeneration;
+            wordCount = current.words.length;
+            this.append(new Frame(null, Words.of(previous.words)));
+        }
+
+        Words delta = Words.difference(previous.words, current.words, changes);
+        Words keyframe = null;
+        int since = 0;
+        long sinceBytes = 0;
+        for (int k = count - 1; this.frame(k).keyframe == null; k--) {
+            since++;
+            sinceBytes += this.frame(k).bytes();
+        }
+        if (since + 1 >= keyframeInterval || sinceBytes + delta.bytes() > memoryLimit / 4) {
+            keyframe = Words.of(current.words);
+        }
+        this.append(new Frame(delta, keyframe));
+        this.evict();
+        state = current;
+        modCount = current.modCount;
+    }
+
+    /**
+     * Writes <code>generation</code> into <code>target</code>, which becomes the current board.
+     * @param generation a generation held
+     * @param current the current board, used as the starting point if it is nearer than any keyframe
+     * @param currentGeneration the generation of <code>current</code>
+     * @param target a board of the same size, other than <code>current</code>
+     */
+    void restore(long generation, GameState current, long currentGeneration, GameState target){
+        int k = (int)(generation - earliest);
+        // The keyframe at or before it, reached forwards
+        int source = k;
+        while (this.frame(source).keyframe == null) source--;
+        int cost = k - source;
+        // The keyframe after it, reached backwards, if no delta in between is missing
+        for (int j = k + 1; j < count && j - k < cost && this.frame(j).delta != null; j++) {
+            if (this.frame(j).keyframe != null) {
+                source = j;
+                cost = j - k;
+            }
+        }
+        // The current board, either way
+        boolean fromCurrent = false;
+        if (this.isCurrent(current) && this.contains(currentGeneration)) {
+            int c = (int)(currentGeneration - earliest);
+            if (Math.abs(c - k) < cost && this.isContinuous(Math.min(c, k), Math.max(c, k))) {
+                source = c;
+                fromCurrent = true;
+            }
+        }
+
+        long[] out = target.words;
+        if (fromCurrent) {
+            System.arraycopy(current.words, 0, out, 0, out.length);
+        }else{
+            this.frame(source).keyframe.copyTo(out);
+        }
+        for (int j = source + 1; j <= k; j++) {
+            this.frame(j).delta.xorInto(out);
+        }
+        for (int j = source; j > k; j--) {
+            this.frame(j).delta.xorInto(out);
+        }
+        target.modCount++;
+        state = target;
+        modCount = target.modCount;
+    }
+
+    /**
+     * @return the approximate number of bytes held
+     */
+    long getMemoryUsed(){
+        return bytes;
+    }
+
+    //Ring
+
+    private Frame frame(int k){
+        return frames[(head + k) & (frames.length - 1)];
+    }
+
+    /**
+     * @return true if every frame after <code>from</code> up to <code>to</code> has a delta
+     */
+    private boolean isContinuous(int from, int to){
+        for (int j = from + 1; j <= to; j++) {
+            if (this.frame(j).delta == null) return false;
+        }
+        return true;
+    }
+
+    private void append(Frame frame){
+        if (count == frames.length) {
+            Frame[] grown = new Frame[frames.length * 2];
+            for (int k = 0; k < count; k++) {
+                grown[k] = this.frame(k);
+            }
+            frames = grown;
+            head = 0;
+        }
+        frames[(head + count) & (frames.length - 1)] = frame;
+        count++;
+        bytes += frame.bytes();
+    }
+
+    /**
+     * Drops the generations from <code>generation</code> on
+     */
+    private void truncate(long generation){
+        while (count > 0 && earliest + count > generation) {
+            int index = (head + count - 1) & (frames.length - 1);
+            bytes -= frames[index].bytes();
+            frames[index] = null;
+            count--;
+        }
+    }
+
+    /**
+     * Drops the oldest keyframes with their deltas, while over the memory limit and more than one is held
+     */
+    private void evict(){
+        while (bytes > memoryLimit) {
+            int next = 1;
+            while (next < count && this.frame(next).keyframe == null) next++;
+            if (next == count) return;
+            for (int k = 0; k < next; k++) {
+                bytes -= frames[head].bytes();
+                frames[head] = null;
+                head = (head + 1) & (frames.length - 1);
+            }
+            count -= next;
+            earliest += next;
+        }
+    }
+
+    /**
+     * One generation: its delta from the previous one (null if it does not follow on from it), and the whole
+     * board if it is a keyframe
+     */
+    private static final class Frame {
+        final Words delta;
+        final Words keyframe;
+
+        Frame(Words delta, Words keyframe){
+            this.delta = delta;
+            this.keyframe = keyframe;
+        }
+
+        long bytes(){
+            return 16 + (delta == null ? 0 : delta.bytes()) + (keyframe == null ? 0 : keyframe.bytes());
+        }
+    }
+
+    /**
+     * A board's worth of words, held either densely or as the indices and values of its non-zero words,
+     * whichever is smaller
+     */
+    private static final class Words {
+        /**
+         * Null if dense
+         */
+        final int[] indices;
+        final long[] values;
+
+        private Words(int[] indices, long[] values){
+            this.indices = indices;
+            this.values = values;
+        }
+
+        /**
+         * @return a copy of <code>words</code>
+         */
+        static Words of(long[] words){
+            int nonZero = 0;
+            for (long word : words) {
+                if (word != 0) nonZero++;
+            }
+            if (!isSparser(nonZero, words.length)) return new Words(null, words.clone());
+            int[] indices = new int[nonZero];
+            long[] values = new long[nonZero];
+            int n = 0;
+            for (int i = 0; i < words.length; i++) {
+                if (words[i] == 0) continue;
+                indices[n] = i;
+                values[n++] = words[i];
+            }
+            return new Words(indices, values);
+        }
+
+        /**
+         * @return the XOR of <code>before</code> and <code>after</code>
+         * @param changes the words that may differ, or null to compare every word
+         */
+        static Words difference(long[] before, long[] after, ChangeSet changes){
+            if (changes == null || changes.isAll() || changes.getWordCount() != after.length) {
+                int differing = 0;
+                for (int i = 0; i < after.length; i++) {
+                    if (before[i] != after[i]) differing++;
+                }
+                if (!isSparser(differing, after.length)) {
+                    long[] values = new long[after.length];
+                    for (int i = 0; i < after.length; i++) {
+                        values[i] = before[i] ^ after[i];
+                    }
+                    return new Words(null, values);
+                }
+                int[] indices = new int[differing];
+                long[] values = new long[differing];
+                int n = 0;
+                for (int i = 0; i < after.length; i++) {
+                    if (before[i] == after[i]) continue;
+                    indices[n] = i;
+                    values[n++] = before[i] ^ after[i];
+                }
+                return new Words(indices, values);
+            }
+            int differing = 0;
+            for (int k = 0; k < changes.size(); k++) {
+                int i = changes.word(k);
+                if (before[i] != after[i]) differing++;
+            }
+            if (!isSparser(differing, after.length)) return difference(before, after, null);
+            int[] indices = new int[differing];
+            long[] values = new long[differing];
+            int n = 0;
+            for (int k = 0; k < changes.size(); k++) {
+                int i = changes.word(k);
+                if (before[i] == after[i]) continue;
+                indices[n] = i;
+                values[n++] = before[i] ^ after[i];
+            }
+            return new Words(indices, values);
+        }
+
+        /**
+         * @return true if <code>nonZero</code> words of <code>length</code> take less memory as index and value
+         * pairs than densely
+         */
+        private static boolean isSparser(int nonZero, int length){
+            return nonZero * 12L < length * 8L;
+        }
+
+        void copyTo(long[] out){
+            if (indices == null) {
+                System.arraycopy(values, 0, out, 0, out.length);
+                return;
+            }
+            Arrays.fill(out, 0);
+            for (int n = 0; n < indices.length; n++) {
+                out[indices[n]] = values[n];
+            }
+        }
+
+        void xorInto(long[] out){
+            if (indices == null) {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] ^= values[i];
+                }
+                return;
+            }
+            for (int n = 0; n < indices.length; n++) {
+                out[indices[n]] ^= values[n];
+            }
+        }
+
+        long bytes(){
+            return 40 + values.length * 8L + (indices == null ? 0 : indices.length * 4L);
+        }
+    }
+}
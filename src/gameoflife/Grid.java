@@ -2,27 +2,38 @@ package gameoflife;
 
 import java.awt.Dimension;
 import java.awt.Point;
-import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
- *
+ * A grid of objects, stored row-major in one array: the entry at (x, y) is at index <code>y * width + x</code>,
+ * so visiting the entries in order (as the iterators do) reads memory in order. For grids of primitives see
+ * <code>ByteGrid</code> and <code>IntGrid</code>, and for cells that are live or dead, <code>GameState</code>.
  * @author thomdikdave
  * @param <T>
  */
 public class Grid<T> implements Iterable<T>, Cloneable {
-    private Object[][] data;
+    private Object[] data;
     public final Dimension size;
+    private final int width;
 
     
     public Grid(Dimension size){
         this.size = size;
-        data = new Object[size.width][size.height];
+        this.width = size.width;
+        data = new Object[size.width * size.height];
     }
     public Grid(int width, int height){
         this(new Dimension(width, height));
     }
     
+    /**
+     * @return the index of (x, y), for the methods taking an index
+     */
+    public int index(int x, int y){
+        return y * width + x;
+    }
+
     /**
      * 
      * @param in the new grid entry
@@ -30,33 +41,41 @@ public class Grid<T> implements Iterable<T>, Cloneable {
      * @return T old value
      */
     public T setValueAtPoint(T in, Point p){
-        T out = (T)data[p.x][p.y];
-        data[p.x][p.y] = in;
-        return out;
+        return this.setValueAtIndex(in, this.index(p.x, p.y));
     }
     public T setValueAtPoint(T in, int x, int y){
-        return this.setValueAtPoint(in, new Point(x,y));
+        return this.setValueAtIndex(in, this.index(x, y));
+    }
+    public T setValueAtIndex(T in, int index){
+        T out = (T)data[index];
+        data[index] = in;
+        return out;
     }
     public T getValueAtPoint(Point p){
-        return (T)data[p.x][p.y];
+        return (T)data[this.index(p.x, p.y)];
     }
     public T getValueAtPoint(int x, int y){
-        return this.getValueAtPoint(new Point(x,y));
+        return (T)data[this.index(x, y)];
+    }
+    public T getValueAtIndex(int index){
+        return (T)data[index];
     }
     public Point getPointForValue(T in){
-        for (int i = 0; i < size.width; i++) {
-            for (int j = 0; j < size.height; j++) {
-                T thing = (T) data[i][j];
-                if (thing == in) { return new Point(i,j);}
-            }
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == in) { return new Point(i % width, i / width);}
         }
         return null;
     }
+
+    /**
+     * Sets every entry to <code>in</code>
+     */
+    public void fill(T in){
+        Arrays.fill(data, in);
+    }
     void populateGrid(ObjectFactory<T> factory){
-        for (int i = 0; i < size.width; i++) {
-            for (int j = 0; j < size.height; j++) {
-                data[i][j] = factory.newObject();
-            }
+        for (int i = 0; i < data.length; i++) {
+            data[i] = factory.newObject();
         }
     }
     
@@ -64,42 +83,40 @@ public class Grid<T> implements Iterable<T>, Cloneable {
     @Override
     public Iterator<T> iterator() {
         return new Iterator<T>() {
-            Point m = new Point(0,0);
+            int index = 0;
             @Override
             public boolean hasNext() {
-                return m.y < size.height;
+                return index < data.length;
             }
 
             @Override
             public T next() {
-                T out = (T)data[m.x][m.y];
-                if (m.x == size.width-1){
-                    m.x=0;
-                    m.y++;
-                }else{
-                    m.x++;
-                }
-                return out;
+                return (T)data[index++];
             }
         };
     }
     
+    /**
+     * Visits every point row by row, as a new <code>Point</code> each time. To visit the entries without
+     * allocating, iterate over the indices from 0 to <code>width * height</code> instead.
+     */
     public Iterator<Point> iteratePoints(){
         return new Iterator<Point>() {
-            Point m = new Point(0,0);
+            int x = 0;
+            int y = 0;
             @Override
             public boolean hasNext() {
-                return m.y < size.height;
+                return y < size.height && width > 0;
             }
 
             @Override
             public Point next() {
-                Point out = (Point)m.clone();
-                if (m.x == size.width-1){
-                    m.x=0;
-                    m.y++;
+                Point out = new Point(x, y);
+                if (x == width-1){
+                    x=0;
+                    y++;
                 }else{
-                    m.x++;
+                    x++;
                 }
                 return out;
             }
@@ -117,11 +134,7 @@ public class Grid<T> implements Iterable<T>, Cloneable {
     protected Object clone() {        
         try {
             Grid<T> out = (Grid<T>)super.clone();
-            Object[][] outData = new Object[data.length][0];
-            for (int i = 0; i < outData.length; i++) {
-                outData[i] = data[i].clone();
-            }
-            out.data = outData;
+            out.data = data.clone();
             return out;
         } catch (CloneNotSupportedException ex) {
             throw new java.lang.InternalError();
@@ -132,4 +145,4 @@ public class Grid<T> implements Iterable<T>, Cloneable {
 
 interface ObjectFactory<T> {
     T newObject();
-}
\ No newline at end of file
+}
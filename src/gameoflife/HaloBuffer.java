@@ -0,0 +1,117 @@
+package gameoflife;
+
+import java.util.Arrays;
+
+/**
+ * A copy of a board surrounded by a halo: a word either side of every row and a row above and below the board.
+ * Before each step the halo is filled with whatever lies beyond the edges, zeros for a flat edge or the cells
+ * of the opposite edge for one that wraps around, so the stepping loop reads every neighbour straight from the
+ * buffer without checking for edges, and is the same loop for every geometry.
+ * <p>For a width that is not a multiple of 64, the cell beyond the last column is held in the first unused
+ * bit of the last word of each row, where the shifts of the stepping loop find it, as well as in the halo word
+ * after it.</p>
+ * <p>The halo is also the boundary exchanged between parts of the board stepped separately:
+ * <code>ParallelEngine</code>'s bands step from one shared buffer, each reading the rows beyond its own from it,
+ * and <code>TiledPlaneEngine</code> gathers each tile's neighbours into a halo round the tile and steps it with
+ * <code>stepRows</code>.</p>
+ * @author thomdikdave
+ */
+final class HaloBuffer {
+    /**
+     * Row y of the board starts at <code>(y + 1) * stride + 1</code>
+     */
+    long[] words = new long[0];
+    int stride;
+    private int wordsPerRow;
+    private long lastMask;
+
+    /**
+     * A halo can stand in for rows (or columns) that are either the board's own, with the edges missing or
+     * wrapping round to the opposite edge
+     * @param table row (or column) table of the geometry
+     * @param length board height (or width)
+     * @return true if a halo can follow the table
+     */
+    static boolean isHaloCompatible(int[] table, int length){
+        return BitwiseEngine.isWordCompatible(table, length);
+    }
+
+    /**
+     * Copies <code>current</code> into the buffer and fills the halo
+     * @param wrapX whether the first and last columns are adjacent
+     * @param wrapY whether the first and last rows are adjacent
+     */
+    void load(GameState current, boolean wrapX, boolean wrapY){
+        int wpr = current.wordsPerRow;
+        int h = current.size.height;
+        int width = current.size.width;
+        if (words.length != (wpr + 2) * (h + 2)) {
+            words = new long[(wpr + 2) * (h + 2)];
+        }
+        wordsPerRow = wpr;
+        stride = wpr + 2;
+        lastMask = -1L >>> (-width & 63);
+        int edge = (width - 1) & 63;
+        long[] in = current.words;
+        for (int y = 0; y < h; y++) {
+            int row = (y + 1) * stride;
+            System.arraycopy(in, y * wpr, words, row + 1, wpr);
+            if (wrapX) {
+                long last = words[row + wpr];
+                long first = words[row + 1];
+                words[row] = ((last >>> edge) & 1) << 63;
+                words[row + wpr + 1] = first & 1;
+                if (edge != 63) words[row + wpr] = last | (first & 1) << (edge + 1);
+            }else{
+                words[row] = 0;
+                words[row + wpr + 1] = 0;
+            }
+        }
+        if (wrapY && h > 0) {
+            System.arraycopy(words, h * stride, words, 0, stride);
+            System.arraycopy(words, stride, words, (h + 1) * stride, stride);
+        }else{
+            Arrays.fill(words, 0, stride, 0);
+            Arrays.fill(words, (h + 1) * stride, (h + 2) * stride, 0);
+        }
+    }
+
+    /**
+     * Writes rows <code>from</code> (inclusive) to <code>to</code> (exclusive) of the next generation of the
+     * board last loaded into <code>next</code>
+     */
+    void step(GameState next, int from, int to, Rule rule){
+        stepRows(words, stride, wordsPerRow, from, to, rule, next.words, wordsPerRow, 0, lastMask);
+    }
+
+    /**
+     * Steps rows of a board held with a halo round it.
+     * @param in the board, row y starting at <code>(y + 1) * stride + 1</code>
+     * @param stride words per row of <code>in</code>, including the halo words either side
+     * @param wordsPerRow words per row of the board itself
+     * @param from first row to step
+     * @param to row after the last to step
+     * @param rule the rule to apply
+     * @param out where to write the next generation, row y starting at <code>outOffset + y * outStride</code>
+     * @param lastMask the bits of the last word of each row that hold cells
+     */
+    static void stepRows(long[] in, int stride, int wordsPerRow, int from, int to, Rule rule,
+            long[] out, int outStride, int outOffset, long lastMask){
+        for (int y = from; y < to; y++) {
+            int c = (y + 1) * stride + 1;
+            int n = c - stride;
+            int s = c + stride;
+            int o = outOffset + y * outStride;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long north = in[n + i];
+                long centre = in[c + i];
+                long south = in[s + i];
+                out[o + i] = BitwiseEngine.nextCells(rule, centre,
+                        (north << 1) | (in[n + i - 1] >>> 63), north, (north >>> 1) | (in[n + i + 1] << 63),
+                        (centre << 1) | (in[c + i - 1] >>> 63), (centre >>> 1) | (in[c + i + 1] << 63),
+                        (south << 1) | (in[s + i - 1] >>> 63), south, (south >>> 1) | (in[s + i + 1] << 63));
+            }
+            out[o + wordsPerRow - 1] &= lastMask;
+        }
+    }
+}
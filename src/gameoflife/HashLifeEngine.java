@@ -0,0 +1,399 @@
+package gameoflife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Engine implementing Gosper's HashLife. The board is held as a quadtree of canonical nodes: every distinct
+ * square of cells exists once, looked up through a hash table keyed on the node's four quadrants. Each node
+ * memoises the result of advancing its centre, so repeated regions (in space or in time) are only ever
+ * calculated once, and a jump of 2<sup>k</sup> generations costs roughly as much as a single step of
+ * the distinct regions involved.
+ * <p>The quadtree covers an unbounded plane, of which the grid is a window with its top-left corner at (0,0).
+ * In the flat geometry single steps clip the plane to the window afterwards, so the results are identical
+ * to the other engines. Jumps (see <code>jump</code>), and every step in an unbounded geometry, do not clip:
+ * cells leaving the window carry on evolving.
+ * Geometries whose edges wrap around are delegated to <code>BitwiseEngine</code>.</p>
+ * <p>When the node table grows past its limit, it is rebuilt from the nodes reachable from the current
+ * board, discarding every memoised result.</p>
+ * @author thomdikdave
+ */
+class HashLifeEngine implements GameEngine {
+    static final int defaultMaximumNodes = 1 << 21;
+
+    /**
+     * A square of 2<sup>level</sup> cells. Nodes are immutable, apart from their memoised result.
+     */
+    private static final class Node {
+        final Node nw, ne, sw, se;
+        final int level;
+        final long population;
+        final int hash;
+        Node chain;
+        Node result;
+        int resultStep = -1;
+
+        Node(boolean alive){
+            nw = ne = sw = se = null;
+            level = 0;
+            population = alive ? 1 : 0;
+            hash = alive ? 1 : 0;
+        }
+
+        Node(Node nw, Node ne, Node sw, Node se, int hash){
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.level = nw.level + 1;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash;
+        }
+    }
+
+    private final Node dead = new Node(false);
+    private final Node alive = new Node(true);
+    private final ArrayList<Node> emptyNodes = new ArrayList<>();
+    private final int maximumNodes;
+    private Node[] table = new Node[1 << 16];
+    private int nodeCount;
+
+    private Rule rule = Rule.conway;
+    /**
+     * Next generation of each 4x4 block under the rule, see <code>Rule.blockResults</code>
+     */
+    private byte[] blockResults = rule.blockResults();
+
+    // Board, with the top-left corner of the root at (rootX, rootY)
+    private Node root;
+    private long rootX;
+    private long rootY;
+    private GameState lastState;
+    private int lastModCount;
+
+    private final BitwiseEngine wrappingEngine = new BitwiseEngine();
+
+    HashLifeEngine(){
+        this(defaultMaximumNodes);
+    }
+
+    HashLifeEngine(int maximumNodes){
+        this.maximumNodes = maximumNodes;
+        emptyNodes.add(dead);
+    }
+
+    /**
+     * Memoised results follow the old rule, so they are all dropped
+     */
+    @Override
+    public void setRule(Rule rule) {
+        if (rule.equals(this.rule)) return;
+        this.rule = rule;
+        blockResults = rule.blockResults();
+        wrappingEngine.setRule(rule);
+        this.collect();
+    }
+
+    @Override
+    public void nextGeneration(GameState current, GameState next, GameModel.GameGeometry geo) {
+        if (!isFlat(geo, current.size)) {
+            root = null;
+            wrappingEngine.nextGeneration(current, next, geo);
+            return;
+        }
+        this.synchronise(current);
+        this.advance(0);
+        if (!geo.isUnbounded()) {
+            root = this.clip(root, rootX, rootY, current.size.width, current.size.height);
+        }
+        this.render(next);
+    }
+
+    @Override
+    public boolean supportsUnboundedGeometry() {
+        return true;
+    }
+
+    /**
+     * Advances the board by 2<sup>log2Generations</sup> generations in one go, treating the grid as a window
+     * onto an unbounded plane.
+     * @param current the state to advance (not modified)
+     * @param next the state to write the window of the result to
+     * @param geo the model's geometry, which must not wrap around
+     * @param log2Generations base-2 logarithm of the number of generations to advance
+     */
+    void jump(GameState current, GameState next, GameModel.GameGeometry geo, int log2Generations){
+        if (!isFlat(geo, current.size)) {
+            throw new IllegalStateException("HashLife can only jump in geometries that do not wrap around");
+        }
+        if (log2Generations < 0 || log2Generations > 60) {
+            throw new IllegalArgumentException("Jump must be between 2^0 and 2^60 generations");
+        }
+        this.synchronise(current);
+        this.advance(log2Generations);
+        this.render(next);
+    }
+
+    /**
+     * @return population of the whole plane, including any cells outside the window
+     */
+    long population(){
+        return root == null ? 0 : root.population;
+    }
+
+    int getNodeCount(){
+        return nodeCount;
+    }
+
+    @Override
+    public void dispose() {
+        root = null;
+        this.collect();
+    }
+
+    private static boolean isFlat(GameModel.GameGeometry geo, java.awt.Dimension size){
+        int[] columns = geo.columnTable(size.width);
+        int[] rows = geo.rowTable(size.height);
+        return columns[0] < 0 && columns[size.width + 1] < 0 && rows[0] < 0 && rows[size.height + 1] < 0;
+    }
+
+//------------------------------------------------------
+//-------Node table-------
+//------------------------------------------------------
+
+    private Node join(Node nw, Node ne, Node sw, Node se){
+        int hash = nw.hash * 0x9E3779B1 + ne.hash;
+        hash = hash * 0x9E3779B1 + sw.hash;
+        hash = hash * 0x9E3779B1 + se.hash;
+        hash ^= hash >>> 15;
+        int i = hash & (table.length - 1);
+        for (Node n = table[i]; n != null; n = n.chain) {
+            if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se) return n;
+        }
+        Node n = new Node(nw, ne, sw, se, hash);
+        n.chain = table[i];
+        table[i] = n;
+        if (++nodeCount > table.length - (table.length >> 2)) {
+            this.resizeTable(table.length << 1);
+        }
+        return n;
+    }
+
+    private void resizeTable(int length){
+        Node[] old = table;
+        table = new Node[length];
+        for (Node head : old) {
+            for (Node n = head; n != null; ) {
+                Node following = n.chain;
+                int i = n.hash & (length - 1);
+                n.chain = table[i];
+                table[i] = n;
+                n = following;
+            }
+        }
+    }
+
+    private Node empty(int level){
+        while (emptyNodes.size() <= level) {
+            Node e = emptyNodes.get(emptyNodes.size() - 1);
+            emptyNodes.add(this.join(e, e, e, e));
+        }
+        return emptyNodes.get(level);
+    }
+
+    /**
+     * Rebuilds the node table from the nodes reachable from the root, dropping memoised results so the
+     * nodes only they refer to can be garbage collected.
+     */
+    private void collect(){
+        table = new Node[1 << 16];
+        nodeCount = 0;
+        emptyNodes.clear();
+        emptyNodes.add(dead);
+        if (root != null) root = this.reinsert(root);
+    }
+
+    private Node reinsert(Node n){
+        if (n.level == 0) return n;
+        n.result = null;
+        n.resultStep = -1;
+        Node nw = this.reinsert(n.nw);
+        Node ne = this.reinsert(n.ne);
+        Node sw = this.reinsert(n.sw);
+        Node se = this.reinsert(n.se);
+        return this.join(nw, ne, sw, se);
+    }
+
+//------------------------------------------------------
+//-------Stepping-------
+//------------------------------------------------------
+
+    private void advance(int log2Generations){
+        if (nodeCount > maximumNodes) this.collect();
+        while (root.level < log2Generations + 3 || !this.isPadded(root)) {
+            this.expand();
+        }
+        long quarter = 1L << (root.level - 2);
+        root = this.step(root, log2Generations);
+        rootX += quarter;
+        rootY += quarter;
+    }
+
+    /**
+     * @return true if every live cell of n lies within the central square half as wide as n
+     */
+    private boolean isPadded(Node n){
+        return n.nw.population == n.nw.se.se.population
+            && n.ne.population == n.ne.sw.sw.population
+            && n.sw.population == n.sw.ne.ne.population
+            && n.se.population == n.se.nw.nw.population;
+    }
+
+    /**
+     * Doubles the width of the root, keeping the board in the centre
+     */
+    private void expand(){
+        Node e = this.empty(root.level - 1);
+        long half = 1L << (root.level - 1);
+        root = this.join(
+                this.join(e, e, e, root.nw),
+                this.join(e, e, root.ne, e),
+                this.join(e, root.sw, e, e),
+                this.join(root.se, e, e, e));
+        rootX -= half;
+        rootY -= half;
+    }
+
+    /**
+     * Returns the centre of n (half its width), advanced by 2<sup>min(log2Generations, level-2)</sup> generations
+     */
+    private Node step(Node n, int log2Generations){
+        int effective = Math.min(log2Generations, n.level - 2);
+        if (n.population == 0) return this.empty(n.level - 1);
+        if (n.result != null && n.resultStep == effective) return n.result;
+
+        Node result;
+        if (n.level == 2) {
+            result = this.stepBlock(n);
+        }else{
+            Node n00 = n.nw, n01 = this.horizontal(n.nw, n.ne), n02 = n.ne;
+            Node n10 = this.vertical(n.nw, n.sw), n11 = this.centre(n), n12 = this.vertical(n.ne, n.se);
+            Node n20 = n.sw, n21 = this.horizontal(n.sw, n.se), n22 = n.se;
+            if (effective == n.level - 2) {
+                // Two half-steps: the nine overlapping sub-squares, then the four that they form
+                n00 = this.step(n00, effective); n01 = this.step(n01, effective); n02 = this.step(n02, effective);
+                n10 = this.step(n10, effective); n11 = this.step(n11, effective); n12 = this.step(n12, effective);
+                n20 = this.step(n20, effective); n21 = this.step(n21, effective); n22 = this.step(n22, effective);
+            }else{
+                // Fewer generations than a full step: take the centres, then step just once
+                n00 = this.centre(n00); n01 = this.centre(n01); n02 = this.centre(n02);
+                n10 = this.centre(n10); n11 = this.centre(n11); n12 = this.centre(n12);
+                n20 = this.centre(n20); n21 = this.centre(n21); n22 = this.centre(n22);
+            }
+            result = this.join(
+                    this.step(this.join(n00, n01, n10, n11), effective),
+                    this.step(this.join(n01, n02, n11, n12), effective),
+                    this.step(this.join(n10, n11, n20, n21), effective),
+                    this.step(this.join(n11, n12, n21, n22), effective));
+        }
+        n.result = result;
+        n.resultStep = effective;
+        return result;
+    }
+
+    private Node stepBlock(Node n){
+        int block = 0;
+        Node[] quadrants = {n.nw, n.ne, n.sw, n.se};
+        for (int q = 0; q < 4; q++) {
+            Node quadrant = quadrants[q];
+            int x = (q & 1) * 2;
+            int y = (q >> 1) * 2;
+            if (quadrant.nw.population != 0) block |= 1 << (y * 4 + x);
+            if (quadrant.ne.population != 0) block |= 1 << (y * 4 + x + 1);
+            if (quadrant.sw.population != 0) block |= 1 << ((y + 1) * 4 + x);
+            if (quadrant.se.population != 0) block |= 1 << ((y + 1) * 4 + x + 1);
+        }
+        int result = blockResults[block];
+        return this.join(this.leaf(result & 1), this.leaf(result & 2), this.leaf(result & 4), this.leaf(result & 8));
+    }
+
+    private Node leaf(int bit){
+        return bit != 0 ? alive : dead;
+    }
+
+    private Node centre(Node n){
+        return this.join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+    }
+
+    private Node horizontal(Node west, Node east){
+        return this.join(west.ne, east.nw, west.se, east.sw);
+    }
+
+    private Node vertical(Node north, Node south){
+        return this.join(north.sw, north.se, south.nw, south.ne);
+    }
+
+//------------------------------------------------------
+//-------Converting to and from GameStates-------
+//------------------------------------------------------
+
+    /**
+     * Rebuilds the quadtree from <code>current</code>, unless it is the state this engine last wrote and
+     * it has not been edited since
+     */
+    private void synchronise(GameState current){
+        if (root != null && current == lastState && current.modCount == lastModCount) return;
+        int level = 3;
+        while ((1L << level) < Math.max(current.size.width, current.size.height)) level++;
+        root = this.build(current, 0, 0, level);
+        rootX = 0;
+        rootY = 0;
+    }
+
+    private Node build(GameState state, int x, int y, int level){
+        if (x >= state.size.width || y >= state.size.height) return this.empty(level);
+        if (level == 0) return state.getValueAtPoint(x, y) ? alive : dead;
+        int half = 1 << (level - 1);
+        return this.join(
+                this.build(state, x, y, level - 1),
+                this.build(state, x + half, y, level - 1),
+                this.build(state, x, y + half, level - 1),
+                this.build(state, x + half, y + half, level - 1));
+    }
+
+    /**
+     * Returns n with every cell outside the window (0,0)-(width,height) cleared
+     */
+    private Node clip(Node n, long x, long y, int width, int height){
+        long size = 1L << n.level;
+        if (n.population == 0 || (x >= 0 && y >= 0 && x + size <= width && y + size <= height)) return n;
+        if (x >= width || y >= height || x + size <= 0 || y + size <= 0) return this.empty(n.level);
+        long half = size >> 1;
+        return this.join(
+                this.clip(n.nw, x, y, width, height),
+                this.clip(n.ne, x + half, y, width, height),
+                this.clip(n.sw, x, y + half, width, height),
+                this.clip(n.se, x + half, y + half, width, height));
+    }
+
+    private void render(GameState next){
+        Arrays.fill(next.words, 0);
+        this.render(root, rootX, rootY, next);
+        lastState = next;
+        lastModCount = next.modCount;
+    }
+
+    private void render(Node n, long x, long y, GameState state){
+        long size = 1L << n.level;
+        if (n.population == 0 || x >= state.size.width || y >= state.size.height || x + size <= 0 || y + size <= 0) return;
+        if (n.level == 0) {
+            state.words[(int)y * state.wordsPerRow + (int)(x >>> 6)] |= 1L << x;
+            return;
+        }
+        long half = size >> 1;
+        this.render(n.nw, x, y, state);
+        this.render(n.ne, x + half, y, state);
+        this.render(n.sw, x, y + half, state);
+        this.render(n.se, x + half, y + half, state);
+    }
+}
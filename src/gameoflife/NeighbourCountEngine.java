@@ -0,0 +1,257 @@
+package gameoflife;
+
+/**
+ * Engine that keeps the number of live neighbours of every cell from one generation to the next, in a
+ * <code>ByteGrid</code>, rather than counting them again. When a cell is born or dies only the counts of its
+ * eight neighbours change, by one each, and only the cells that changed and their neighbours can change in the
+ * following generation, so each step looks at those cells alone: the work follows the number of births and
+ * deaths, cell by cell, not the area of the board or the number of words touched.
+ * <p>Like <code>SparseEngine</code>, it relies on the model's double buffering, bringing the state it is asked
+ * to write to (the one it read from in the previous step) up to date from the cells that changed. Whenever that
+ * is not the case (the first step, edits, a new rule or geometry) it counts every neighbour and steps every
+ * cell once. Geometries whose adjacency is not symmetric, where a cell may count a neighbour that does not count
+ * it, are stepped with <code>GameState.getNextGenerationState</code>.</p>
+ * @author thomdikdave
+ */
+class NeighbourCountEngine implements GameEngine {
+    /**
+     * The live neighbours of each cell of the state last written
+     */
+    private ByteGrid counts = new ByteGrid(0, 0);
+    /**
+     * The cells that changed in the last generation, by index (<code>y * width + x</code>)
+     */
+    private int[] changed = new int[0];
+    private int changedCount;
+    private int[] candidates = new int[0];
+    private int candidateCount;
+    private int[] nextChanged = new int[0];
+    private long[] scheduled = new long[0];
+
+    /**
+     * The next state of a cell, indexed by its live neighbours, plus 9 if it is alive
+     */
+    private final byte[] results = new byte[18];
+    private Rule rule;
+
+    private GameState lastCurrent;
+    private GameState lastNext;
+    private int lastCurrentModCount;
+    private int lastNextModCount;
+    private int[] lastColumns;
+    private int[] lastRows;
+    private boolean symmetric;
+
+    NeighbourCountEngine(){
+        this.setRule(Rule.conway);
+    }
+
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = rule;
+        for (int count = 0; count <= 8; count++) {
+            results[count] = (byte)(rule.isLive(false, count) ? 1 : 0);
+            results[9 + count] = (byte)(rule.isLive(true, count) ? 1 : 0);
+        }
+        lastNext = null;
+    }
+
+    @Override
+    public void nextGeneration(GameState current, GameState next, GameModel.GameGeometry geo) {
+        int width = current.size.width;
+        int height = current.size.height;
+        int[] columns = geo.columnTable(width);
+        int[] rows = geo.rowTable(height);
+        if (columns != lastColumns || rows != lastRows) {
+            lastColumns = columns;
+            lastRows = rows;
+            symmetric = isSymmetric(columns, width) && isSymmetric(rows, height);
+            lastNext = null;
+        }
+        if (!symmetric) {
+            lastNext = null;
+            current.getNextGenerationState(geo, rule, next);
+            return;
+        }
+        int cells = width * height;
+        if (counts.size.width != width || counts.size.height != height) {
+            counts = new ByteGrid(width, height);
+            changed = new int[cells];
+            candidates = new int[cells];
+            nextChanged = new int[cells];
+            scheduled = new long[(cells + 63) >>> 6];
+            lastNext = null;
+        }
+
+        boolean continuing = current == lastNext && current.modCount == lastNextModCount
+                && next == lastCurrent && next.modCount == lastCurrentModCount;
+        if (continuing) {
+            this.stepChanged(current, next, columns, rows);
+        }else{
+            this.stepAll(current, next, columns, rows);
+        }
+
+        lastCurrent = current;
+        lastNext = next;
+        lastCurrentModCount = current.modCount;
+        lastNextModCount = next.modCount;
+    }
+
+    /**
+     * @return true if, for every cell, each neighbour in the table has the cell as its neighbour the other way
+     */
+    static boolean isSymmetric(int[] table, int length){
+        for (int i = 0; i < length; i++) {
+            int before = table[i];
+            int after = table[i + 2];
+            if (before >= 0 && table[before + 2] != i) return false;
+            if (after >= 0 && table[after] != i) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Counts the neighbours of every cell of <code>current</code>, and steps every cell
+     */
+    private void stepAll(GameState current, GameState next, int[] columns, int[] rows){
+        int width = current.size.width;
+        int height = current.size.height;
+        int wpr = current.wordsPerRow;
+        counts.fill((byte)0);
+        for (int i = current.nextLiveCell(0); i >= 0; i = current.nextLiveCell(i + 1)) {
+            this.addToNeighbours(i % width, i / width, 1, columns, rows);
+        }
+
+        byte[] n = counts.data;
+        long[] words = current.words;
+        changedCount = 0;
+        for (int y = 0; y < height; y++) {
+            int cell = y * width;
+            for (int w = y * wpr; w < (y + 1) * wpr; w++) {
+                long word = words[w];
+                long result = 0;
+                int end = Math.min(64, width - ((w - y * wpr) << 6));
+                for (int b = 0; b < end; b++, cell++) {
+                    int alive = (int)(word >>> b) & 1;
+                    if (results[alive * 9 + n[cell]] != 0) result |= 1L << b;
+                    if ((result >>> b & 1) != alive) changed[changedCount++] = cell;
+                }
+                next.words[w] = result;
+            }
+        }
+        for (int k = 0; k < changedCount; k++) {
+            int i = changed[k];
+            this.addToNeighbours(i % width, i / width, this.isLive(next, i) ? 1 : -1, columns, rows);
+        }
+    }
+
+    /**
+     * Brings <code>next</code> (two generations old) up to date, then steps only the cells that changed in the
+     * previous generation and their neighbours
+     */
+    private void stepChanged(GameState current, GameState next, int[] columns, int[] rows){
+        int width = current.size.width;
+        candidateCount = 0;
+        for (int k = 0; k < changedCount; k++) {
+            int i = changed[k];
+            this.flip(next, i);
+            int x = i % width;
+            int y = i / width;
+            for (int dy = 0; dy <= 2; dy++) {
+                int row = rows[y + dy];
+                if (row < 0) continue;
+                for (int dx = 0; dx <= 2; dx++) {
+                    int column = columns[x + dx];
+                    if (column >= 0) this.schedule(row * width + column);
+                }
+            }
+        }
+
+        byte[] n = counts.data;
+        int nextCount = 0;
+        for (int k = 0; k < candidateCount; k++) {
+            int i = candidates[k];
+            scheduled[i >>> 6] &= ~(1L << i);
+            int alive = this.isLive(current, i) ? 1 : 0;
+            if (results[alive * 9 + n[i]] != alive) nextChanged[nextCount++] = i;
+        }
+
+        for (int k = 0; k < nextCount; k++) {
+            int i = nextChanged[k];
+            this.addToNeighbours(i % width, i / width, this.flip(next, i) ? 1 : -1, columns, rows);
+        }
+        int[] swap = changed;
+        changed = nextChanged;
+        nextChanged = swap;
+        changedCount = nextCount;
+    }
+
+    /**
+     * Adds <code>delta</code> to the counts of the neighbours of (x, y)
+     */
+    private void addToNeighbours(int x, int y, int delta, int[] columns, int[] rows){
+        int width = counts.width;
+        for (int dy = 0; dy <= 2; dy++) {
+            int row = rows[y + dy];
+            if (row < 0) continue;
+            for (int dx = 0; dx <= 2; dx++) {
+                int column = columns[x + dx];
+                if (column < 0 || (dx == 1 && dy == 1)) continue;
+                counts.addAtIndex(delta, row * width + column);
+            }
+        }
+    }
+
+    private void schedule(int i){
+        long mask = 1L << i;
+        if ((scheduled[i >>> 6] & mask) == 0) {
+            scheduled[i >>> 6] |= mask;
+            candidates[candidateCount++] = i;
+        }
+    }
+
+    private boolean isLive(GameState state, int i){
+        int width = state.size.width;
+        int y = i / width;
+        int x = i - y * width;
+        return (state.words[y * state.wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Flips cell i of <code>state</code> without counting it as an edit
+     * @return true if the cell is now alive
+     */
+    private boolean flip(GameState state, int i){
+        int width = state.size.width;
+        int y = i / width;
+        int x = i - y * width;
+        int w = y * state.wordsPerRow + (x >>> 6);
+        state.words[w] ^= 1L << x;
+        return (state.words[w] & (1L << x)) != 0;
+    }
+
+    /**
+     * The cells that changed are already listed, so nothing is compared unless the last step fell back to
+     * the cellwise rules.
+     */
+    @Override
+    public void collectChanges(GameState previous, GameState next, ChangeSet changes) {
+        if (previous != lastCurrent || next != lastNext) {
+            changes.addDifferences(previous, next);
+            return;
+        }
+        int width = next.size.width;
+        for (int k = 0; k < changedCount; k++) {
+            int i = changed[k];
+            int y = i / width;
+            changes.add(y * next.wordsPerRow + ((i - y * width) >>> 6));
+        }
+    }
+
+    /**
+     * @return the number of cells that changed in the last generation
+     */
+    int getChangedCellCount(){
+        return changedCount;
+    }
+}
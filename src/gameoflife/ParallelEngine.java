@@ -0,0 +1,118 @@
+package gameoflife;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Engine that splits the grid into horizontal bands of rows and advances the bands concurrently on a
+ * <code>ForkJoinPool</code>, each band using the word-parallel stepping of <code>BitwiseEngine</code>.
+ * <p>The current state is first copied into a <code>HaloBuffer</code>, whose halo holds the cells beyond the
+ * edges. Every band reads the rows either side of it from the buffer, which is never written to during the
+ * step, and writes only its own rows of the next state, so bands need no synchronisation between them. A
+ * geometry whose rows a halo cannot follow is stepped from the current state itself, through its row table.</p>
+ * @author thomdikdave
+ */
+class ParallelEngine implements GameEngine {
+    /**
+     * Bands are not split any further once they hold fewer words than this
+     */
+    static final int minimumBandWords = 4096;
+
+    private final ForkJoinPool pool;
+    private long[] emptyRow = new long[0];
+    private final HaloBuffer halo = new HaloBuffer();
+    private Rule rule = Rule.conway;
+
+    ParallelEngine(int threads){
+        pool = new ForkJoinPool(threads);
+    }
+
+    int getThreadCount(){
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = rule;
+    }
+
+    @Override
+    public void nextGeneration(GameState current, GameState next, GameModel.GameGeometry geo) {
+        int width = current.size.width;
+        int height = current.size.height;
+        if (current.wordsPerRow == 0) return;
+        int[] columns = geo.columnTable(width);
+        if (!BitwiseEngine.isWordCompatible(columns, width)) {
+            current.getNextGenerationState(geo, rule, next);
+            return;
+        }
+        int[] rows = geo.rowTable(height);
+        if (emptyRow.length < current.wordsPerRow) {
+            emptyRow = new long[current.wordsPerRow];
+        }
+        HaloBuffer loaded = null;
+        if (HaloBuffer.isHaloCompatible(rows, height)) {
+            halo.load(current, columns[0] >= 0, rows[0] >= 0);
+            loaded = halo;
+        }
+        Band band = new Band(current, next, loaded, rows, columns[0] >= 0, emptyRow, rule, 0, height);
+        if ((long)height * current.wordsPerRow < 2 * minimumBandWords) {
+            band.compute();
+        }else{
+            pool.invoke(band);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        pool.shutdown();
+    }
+
+    /**
+     * Rows <code>from</code> (inclusive) to <code>to</code> (exclusive) of a single step
+     */
+    @SuppressWarnings("serial")
+    private static class Band extends RecursiveAction {
+        final GameState current;
+        final GameState next;
+        /**
+         * The current state with its halo, or null to step from the current state through the row table
+         */
+        final HaloBuffer halo;
+        final int[] rows;
+        final boolean wrapX;
+        final long[] emptyRow;
+        final Rule rule;
+        final int from;
+        final int to;
+
+        Band(GameState current, GameState next, HaloBuffer halo, int[] rows, boolean wrapX, long[] emptyRow, Rule rule, int from, int to) {
+            this.current = current;
+            this.next = next;
+            this.halo = halo;
+            this.rows = rows;
+            this.wrapX = wrapX;
+            this.emptyRow = emptyRow;
+            this.rule = rule;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long)(to - from) * current.wordsPerRow >= 2 * minimumBandWords && to - from >= 2) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Band(current, next, halo, rows, wrapX, emptyRow, rule, from, middle),
+                          new Band(current, next, halo, rows, wrapX, emptyRow, rule, middle, to));
+                return;
+            }
+            if (halo != null) {
+                halo.step(next, from, to, rule);
+                return;
+            }
+            for (int y = from; y < to; y++) {
+                BitwiseEngine.stepRow(current, next, y, rows[y], rows[y + 2], wrapX, emptyRow, rule);
+            }
+        }
+    }
+}
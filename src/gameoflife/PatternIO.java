@@ -0,0 +1,391 @@
+package gameoflife;
+
+import java.awt.Dimension;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes patterns as streams of characters, parsing straight into a <code>GameState</code> and writing
+ * straight from its words, without building strings of the whole board. Two formats are supported:
+ * <ul>
+ * <li>Plain text, this project's original format: a line of characters per row, '*' for a live cell and any
+ * other character (usually '-') for a dead one. The <code>.cells</code> convention of 'O' for live cells and '!'
+ * for comment lines is also read.</li>
+ * <li>Run Length Encoded (RLE), the standard format for sharing patterns: '#' comment lines, a header
+ * <code>x = width, y = height</code>, then runs such as <code>3o2b$</code> (three live, two dead, end of row)
+ * up to a closing '!'.</li>
+ * </ul>
+ * RLE patterns also name the rule they follow (<code>rule = B36/S23</code>), which is read with
+ * <code>readRule</code> and written from the rule given, Conway's by default.
+ * Reading detects the format from the content. Memory used besides the state is constant: an RLE header gives
+ * the size of the board up front, while plain text is read twice, once to measure it and once to fill it in.
+ * @author thomdikdave
+ */
+public class PatternIO {
+
+    /**
+     * Opens a fresh reader over the same pattern each time it is called
+     */
+    public interface Source {
+        Reader open() throws IOException;
+    }
+
+    private PatternIO(){}
+
+    //Reading
+
+    public static GameState read(File file) throws IOException{
+        return read(() -> new FileReader(file));
+    }
+
+    /**
+     * Reads a pattern in either format. Only state-changing characters are counted: carriage returns are
+     * ignored, and empty lines at the end of a plain text pattern are dropped.
+     * @param source opened once to detect the format, then once more for RLE and twice more for plain text
+     * @throws IOException if the pattern cannot be read or is malformed
+     */
+    public static GameState read(Source source) throws IOException{
+        try (Reader reader = source.open()) {
+            CharStream in = new CharStream(reader);
+            if (isRLE(in)) return readRLE(in);
+        }
+        Dimension size;
+        try (Reader reader = source.open()) {
+            size = readPlainText(new CharStream(reader), null);
+        }
+        GameState out = new GameState(size);
+        try (Reader reader = source.open()) {
+            readPlainText(new CharStream(reader), out);
+        }
+        return out;
+    }
+
+    public static Rule readRule(File file) throws IOException{
+        return readRule(() -> new FileReader(file));
+    }
+
+    /**
+     * Reads the rule named in the header of an RLE pattern, without reading the pattern
+     * @return the rule, or null if the pattern is not RLE or does not name one
+     * @throws IOException if the pattern cannot be read, or the header is malformed or names a rule that is not
+     * supported
+     */
+    public static Rule readRule(Source source) throws IOException{
+        try (Reader reader = source.open()) {
+            CharStream in = new CharStream(reader);
+            if (!isRLE(in)) return null;
+            while (in.peek() == '#') {
+                skipLine(in);
+                skipWhitespace(in);
+            }
+            String rule = readRLEHeader(in).get("rule");
+            if (rule == null) return null;
+            try {
+                return Rule.parse(rule);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads a pattern held in a string
+     */
+    static GameState readString(String s){
+        try {
+            return read(() -> new StringReader(s));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return true if the first character, after any whitespace, starts an RLE comment or header
+     */
+    private static boolean isRLE(CharStream in) throws IOException{
+        skipWhitespace(in);
+        int c = in.peek();
+        return c == '#' || c == 'x';
+    }
+
+    /**
+     * Measures a plain text pattern, or fills it into <code>out</code> if given
+     * @return the size of the pattern: the longest line by the number of lines up to the last that is not empty
+     */
+    private static Dimension readPlainText(CharStream in, GameState out) throws IOException{
+        int width = 0;
+        int height = 0;
+        int y = 0;
+        int x = 0;
+        boolean comment = false;
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') {
+                if (!comment) y++;
+                x = 0;
+                comment = false;
+                continue;
+            }
+            if (c == '\r' || comment) continue;
+            if (x == 0 && c == '!') {
+                comment = true;
+                continue;
+            }
+            if (out != null && (c == '*' || c == 'O') && x < out.size.width && y < out.size.height) {
+                out.setValueAtPoint(true, x, y);
+            }
+            x++;
+            if (x > width) width = x;
+            height = y + 1;
+        }
+        return new Dimension(width, height);
+    }
+
+    private static GameState readRLE(CharStream in) throws IOException{
+        int c;
+        while ((c = in.peek()) == '#') {
+            skipLine(in);
+            skipWhitespace(in);
+        }
+        Dimension size = sizeOf(readRLEHeader(in));
+        GameState out = new GameState(size);
+        int x = 0;
+        int y = 0;
+        int count = 0;
+        while ((c = in.read()) >= 0) {
+            if (c >= '0' && c <= '9') {
+                count = count * 10 + (c - '0');
+                continue;
+            }
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') continue;
+            int run = count == 0 ? 1 : count;
+            count = 0;
+            if (c == '!') return out;
+            if (c == '$') {
+                y += run;
+                x = 0;
+            }else if (c == 'b' || c == '.') {
+                x += run;
+            }else if (Character.isLetter(c)) {
+                if (x + run > size.width || y >= size.height) {
+                    throw new IOException("Pattern exceeds its declared size at row " + y);
+                }
+                setRun(out, x, y, run);
+                x += run;
+            }else{
+                throw new IOException("Unexpected character '" + (char)c + "' in pattern");
+            }
+        }
+        // Some patterns omit the closing '!'
+        return out;
+    }
+
+    /**
+     * Reads a header of the form <code>x = m, y = n[, rule = ...]</code> and the rest of its line
+     * @return the values of the header's fields by name
+     */
+    private static Map<String, String> readRLEHeader(CharStream in) throws IOException{
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            line.append((char)c);
+        }
+        Map<String, String> out = new HashMap<>();
+        for (String field : line.toString().split(",")) {
+            String[] pair = field.split("=");
+            if (pair.length != 2) continue;
+            out.put(pair[0].trim(), pair[1].trim());
+        }
+        if (!out.containsKey("x") || !out.containsKey("y")) throw new IOException("Malformed pattern header: " + line);
+        return out;
+    }
+
+    private static Dimension sizeOf(Map<String, String> header) throws IOException{
+        try {
+            int width = Integer.parseInt(header.get("x"));
+            int height = Integer.parseInt(header.get("y"));
+            if (width >= 0 && height >= 0) return new Dimension(width, height);
+        } catch (NumberFormatException e) {
+        }
+        throw new IOException("Malformed pattern size: x = " + header.get("x") + ", y = " + header.get("y"));
+    }
+
+    private static void skipLine(CharStream in) throws IOException{
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {}
+    }
+
+    private static void skipWhitespace(CharStream in) throws IOException{
+        int c;
+        while ((c = in.peek()) == ' ' || c == '\t' || c == '\r' || c == '\n') {
+            in.read();
+        }
+    }
+
+    /**
+     * Sets <code>length</code> cells live from (x, y) onwards, a word at a time
+     */
+    private static void setRun(GameState state, int x, int y, int length){
+        int row = y * state.wordsPerRow;
+        int end = x + length;
+        while (x < end) {
+            int bits = Math.min(end - x, 64 - (x & 63));
+            long mask = bits == 64 ? -1L : ((1L << bits) - 1) << x;
+            state.words[row + (x >>> 6)] |= mask;
+            x += bits;
+        }
+    }
+
+    //Writing
+
+    public static void write(GameState state, File file) throws IOException{
+        write(state, Rule.conway, file);
+    }
+
+    /**
+     * Writes <code>state</code> to <code>file</code>, as RLE naming <code>rule</code> if its name ends with ".rle",
+     * otherwise as plain text
+     */
+    public static void write(GameState state, Rule rule, File file) throws IOException{
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            if (file.getName().toLowerCase().endsWith(".rle")) {
+                writeRLE(state, rule, writer);
+            }else{
+                writePlainText(state, writer);
+            }
+        }
+    }
+
+    /**
+     * Writes a row of '*' and '-' characters per row of the board
+     */
+    public static void writePlainText(GameState state, Writer out) throws IOException{
+        char[] line = new char[state.size.width + 1];
+        line[state.size.width] = '\n';
+        for (int y = 0; y < state.size.height; y++) {
+            for (int x = 0; x < state.size.width; x++) {
+                line[x] = state.getValueAtPoint(x, y) ? '*' : '-';
+            }
+            out.write(line);
+        }
+    }
+
+    /**
+     * Writes the board in RLE, finding runs a word at a time. Lines are kept to at most 70 characters, and the
+     * dead cells ending each row, and the empty rows ending the board, are left out.
+     */
+    public static void writeRLE(GameState state, Writer out) throws IOException{
+        writeRLE(state, Rule.conway, out);
+    }
+
+    /**
+     * As <code>writeRLE(state, out)</code>, naming <code>rule</code> in the header
+     */
+    public static void writeRLE(GameState state, Rule rule, Writer out) throws IOException{
+        out.write("x = " + state.size.width + ", y = " + state.size.height + ", rule = " + rule + "\n");
+        RLEWriter rle = new RLEWriter(out);
+        int endOfRows = 0;
+        for (int y = 0; y < state.size.height; y++) {
+            int x = 0;
+            int row = y * state.wordsPerRow;
+            while (true) {
+                int start = nextCell(state, row, x, true);
+                if (start < 0) break;
+                int end = nextCell(state, row, start, false);
+                if (end < 0) end = state.size.width;
+                if (endOfRows > 0) {
+                    rle.run(endOfRows, '$');
+                    endOfRows = 0;
+                }
+                if (start > x) rle.run(start - x, 'b');
+                rle.run(end - start, 'o');
+                x = end;
+            }
+            endOfRows++;
+        }
+        rle.run(1, '!');
+        out.write('\n');
+    }
+
+    /**
+     * @return the first x at or after <code>from</code> in the row starting at word <code>row</code> whose cell is
+     * live (or dead), or -1 if there is none before the end of the row
+     */
+    private static int nextCell(GameState state, int row, int from, boolean live){
+        int width = state.size.width;
+        for (int x = from; x < width; x = (x | 63) + 1) {
+            long word = state.words[row + (x >>> 6)];
+            if (!live) word = ~word;
+            word &= -1L << x;
+            if (word != 0) {
+                int found = (x & ~63) + Long.numberOfTrailingZeros(word);
+                return found < width ? found : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes RLE runs, wrapping lines before they pass 70 characters
+     */
+    private static class RLEWriter {
+        static final int maximumLineLength = 70;
+        private final Writer out;
+        private int lineLength = 0;
+
+        RLEWriter(Writer out){
+            this.out = out;
+        }
+
+        void run(int count, char tag) throws IOException{
+            String token = count == 1 ? String.valueOf(tag) : count + String.valueOf(tag);
+            if (lineLength + token.length() > maximumLineLength) {
+                out.write('\n');
+                lineLength = 0;
+            }
+            out.write(token);
+            lineLength += token.length();
+        }
+    }
+
+    /**
+     * Buffered reading a character at a time, with one character of lookahead
+     */
+    private static class CharStream {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position = 0;
+        private int limit = 0;
+
+        CharStream(Reader reader){
+            this.reader = reader;
+        }
+
+        int peek() throws IOException{
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position];
+        }
+
+        int read() throws IOException{
+            int c = this.peek();
+            if (c >= 0) position++;
+            return c;
+        }
+    }
+}
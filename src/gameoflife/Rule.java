@@ -0,0 +1,234 @@
+package gameoflife;
+
+/**
+ * A life-like rule: the numbers of live neighbours (0-8) on which a dead cell is born and on which a live cell
+ * survives, written in B/S notation, such as "B3/S23" for Conway's Game of Life or "B36/S23" for HighLife.
+ * A rule is compiled into the forms the engines step with:
+ * <ul>
+ * <li>the next state of a cell from its 3x3 neighbourhood, a table of 512 entries (<code>GameState</code>);</li>
+ * <li>the next state of the centre 2x2 cells of a 4x4 block, a table of 65536 entries (<code>HashLifeEngine</code>);</li>
+ * <li>the births and survivals as functions of the bits of a neighbour count, evaluated on the bit-sliced counts
+ * of 64 cells at once as trees of multiplexers, so a word is stepped in a fixed number of operations whatever
+ * the rule, without branching on any cell (<code>BitwiseEngine</code>).</li>
+ * </ul>
+ * Rules with birth on 0 neighbours are not supported, as they would bring the whole of an unbounded plane to
+ * life, and every engine relies on empty regions staying empty.
+ * @author thomdikdave
+ */
+public final class Rule {
+    public static final Rule conway = new Rule(1 << 3, 1 << 2 | 1 << 3);
+    public static final Rule highLife = new Rule(1 << 3 | 1 << 6, 1 << 2 | 1 << 3);
+    public static final Rule dayAndNight = new Rule(1 << 3 | 1 << 6 | 1 << 7 | 1 << 8, 1 << 3 | 1 << 4 | 1 << 6 | 1 << 7 | 1 << 8);
+    public static final Rule seeds = new Rule(1 << 2, 0);
+    public static final Rule lifeWithoutDeath = new Rule(1 << 3, 0x1FF);
+
+    /**
+     * Bit n set for birth (survival) on n live neighbours
+     */
+    private final int birth;
+    private final int survival;
+
+    private final byte[] neighbourhoodResults = new byte[512];
+    private byte[] blockResults;
+
+    private final CountFunction births;
+    private final CountFunction survivals;
+
+    private Rule(int birth, int survival){
+        if ((birth & 1) != 0) throw new IllegalArgumentException("Rules with birth on 0 neighbours are not supported");
+        this.birth = birth;
+        this.survival = survival;
+
+        for (int index = 0; index < neighbourhoodResults.length; index++) {
+            int count = Integer.bitCount(index & ~(1 << 4));
+            neighbourhoodResults[index] = (byte)(this.isLive((index & (1 << 4)) != 0, count) ? 1 : 0);
+        }
+
+        births = new CountFunction(birth);
+        survivals = new CountFunction(survival);
+    }
+
+    /**
+     * @param birth bit n set for birth on n live neighbours
+     * @param survival bit n set for survival on n live neighbours
+     * @throws IllegalArgumentException if the rule gives birth on 0 neighbours
+     */
+    static Rule of(int birth, int survival){
+        Rule out = new Rule(birth & 0x1FF, survival & 0x1FF);
+        return out.equals(conway) ? conway : out;
+    }
+
+    /**
+     * Reads a rule in B/S notation ("B36/S23"), in either order and either case, or in the older S/B notation
+     * of digits only ("23/36", survival first).
+     * @throws IllegalArgumentException if <code>notation</code> is not a rule, or gives birth on 0 neighbours
+     */
+    public static Rule parse(String notation){
+        String[] parts = notation.trim().split("/", -1);
+        if (parts.length != 2) throw new IllegalArgumentException("Not a rule: " + notation);
+        int birth = -1;
+        int survival = -1;
+        for (int p = 0; p < 2; p++) {
+            String part = parts[p].trim();
+            char tag = part.isEmpty() ? ' ' : Character.toUpperCase(part.charAt(0));
+            if (tag == 'B' && birth < 0) {
+                birth = parseCounts(part.substring(1), notation);
+            }else if (tag == 'S' && survival < 0) {
+                survival = parseCounts(part.substring(1), notation);
+            }else if (tag != 'B' && tag != 'S' && birth < 0 && survival < 0 && p == 0) {
+                survival = parseCounts(part, notation);
+                birth = parseCounts(parts[1].trim(), notation);
+                break;
+            }else{
+                throw new IllegalArgumentException("Not a rule: " + notation);
+            }
+        }
+        return of(birth, survival);
+    }
+
+    private static int parseCounts(String digits, String notation){
+        int out = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '8') throw new IllegalArgumentException("Not a rule: " + notation);
+            out |= 1 << (c - '0');
+        }
+        return out;
+    }
+
+    /**
+     * @return true if a cell that is <code>living</code> now, with <code>count</code> live neighbours, lives in
+     * the next generation
+     */
+    public boolean isLive(boolean living, int count){
+        return ((living ? survival : birth) >>> count & 1) != 0;
+    }
+
+    int getBirthMask(){
+        return birth;
+    }
+    int getSurvivalMask(){
+        return survival;
+    }
+
+    //Compiled forms
+
+    /**
+     * @return the next state (0 or 1) of the centre of each 3x3 neighbourhood, indexed with bit
+     * <code>3*dx+dy</code> set for a live cell at (dx, dy), the centre being bit 4
+     */
+    byte[] neighbourhoodResults(){
+        return neighbourhoodResults;
+    }
+
+    /**
+     * @return the next state of the centre of each 4x4 block: bit <code>y*4+x</code> of the index is the cell
+     * (x, y), and bits 0, 1, 2 and 3 of the entry are the centre cells (1,1), (2,1), (1,2) and (2,2).
+     * Compiled when first asked for.
+     */
+    synchronized byte[] blockResults(){
+        if (blockResults != null) return blockResults;
+        byte[] out = new byte[1 << 16];
+        for (int block = 0; block < out.length; block++) {
+            int result = 0;
+            for (int i = 0; i < 4; i++) {
+                int x = 1 + (i & 1);
+                int y = 1 + (i >> 1);
+                int neighbourhood = 0;
+                for (int dx = 0; dx <= 2; dx++) {
+                    for (int dy = 0; dy <= 2; dy++) {
+                        if ((block & (1 << ((y + dy - 1) * 4 + x + dx - 1))) != 0) neighbourhood |= 1 << (3 * dx + dy);
+                    }
+                }
+                result |= neighbourhoodResults[neighbourhood] << i;
+            }
+            out[block] = (byte)result;
+        }
+        blockResults = out;
+        return out;
+    }
+
+    /**
+     * Applies the rule to 64 cells at once, given the bits of their neighbour counts
+     * @param alive the current cells
+     * @param c0 bit 0 of each cell's count
+     * @param c1 bit 1
+     * @param c2 bit 2
+     * @param c3 bit 3 (set only for a count of 8)
+     * @return the cells alive in the next generation
+     */
+    long nextCells(long alive, long c0, long c1, long c2, long c3){
+        long born = births.evaluate(c0, c1, c2, c3);
+        long surviving = survivals.evaluate(c0, c1, c2, c3);
+        return born ^ ((born ^ surviving) & alive);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Rule)) return false;
+        Rule other = (Rule)obj;
+        return birth == other.birth && survival == other.survival;
+    }
+
+    @Override
+    public int hashCode() {
+        return birth << 9 | survival;
+    }
+
+    /**
+     * @return the rule in B/S notation, such as "B3/S23"
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("B");
+        for (int count = 0; count <= 8; count++) {
+            if ((birth & (1 << count)) != 0) out.append(count);
+        }
+        out.append("/S");
+        for (int count = 0; count <= 8; count++) {
+            if ((survival & (1 << count)) != 0) out.append(count);
+        }
+        return out.toString();
+    }
+
+    /**
+     * A set of neighbour counts, as a function of the bits of a count evaluated on 64 counts at once: a tree of
+     * multiplexers selecting on bits 0, 1, 2 and then 3 of the count, whose leaves (all bits set for a count in
+     * the set, none for a count not in it) are fixed when the rule is compiled
+     */
+    private static final class CountFunction {
+        /**
+         * Leaves for counts 2i and 2i+1, held as the first and the XOR of the two
+         */
+        private final long even0, odd0, even1, odd1, even2, odd2, even3, odd3;
+        private final long eight;
+
+        CountFunction(int counts){
+            even0 = leaf(counts, 0);
+            odd0 = even0 ^ leaf(counts, 1);
+            even1 = leaf(counts, 2);
+            odd1 = even1 ^ leaf(counts, 3);
+            even2 = leaf(counts, 4);
+            odd2 = even2 ^ leaf(counts, 5);
+            even3 = leaf(counts, 6);
+            odd3 = even3 ^ leaf(counts, 7);
+            eight = leaf(counts, 8);
+        }
+
+        private static long leaf(int counts, int count){
+            return (counts & (1 << count)) != 0 ? -1L : 0;
+        }
+
+        long evaluate(long c0, long c1, long c2, long c3){
+            long m0 = even0 ^ (odd0 & c0);
+            long m1 = even1 ^ (odd1 & c0);
+            long m2 = even2 ^ (odd2 & c0);
+            long m3 = even3 ^ (odd3 & c0);
+            long n0 = m0 ^ ((m0 ^ m1) & c1);
+            long n1 = m2 ^ ((m2 ^ m3) & c1);
+            long lowCounts = n0 ^ ((n0 ^ n1) & c2);
+            // Bit 3 is set only for a count of 8, when the other bits are clear
+            return lowCounts ^ ((lowCounts ^ eight) & c3);
+        }
+    }
+}
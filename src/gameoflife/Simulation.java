@@ -0,0 +1,424 @@
+package gameoflife;
+
+/**
+ * The part of a game that does not depend on Swing: an initial state, the current state, the generation count,
+ * and the geometry and engine that advance it. <code>GameModel</code> drives one from a
+ * <code>SimulationThread</code> and shows the result on its <code>GameGrid</code>; <code>BatchRunner</code>
+ * drives one directly. Not thread-safe.
+ * @author thomdikdave
+ */
+public class Simulation {
+    private GameState initialState;
+    private GameState currentState;
+    private long generation = 0;
+    private long initialGeneration = 0;
+    private GameModel.GameGeometry geometry;
+    private GameEngine engine;
+    private GameEngine planeEngine;
+    private Rule rule = Rule.conway;
+
+    public Simulation(GameState initialState, GameModel.GameGeometry geometry, GameEngine engine){
+        this.initialState = initialState;
+        this.currentState = initialState;
+        this.geometry = geometry;
+        this.engine = engine;
+    }
+
+    //Setting / Getting
+    public GameState getInitialState(){
+        return initialState;
+    }
+    public GameState getCurrentState(){
+        return currentState;
+    }
+    public long getGeneration(){
+        return generation;
+    }
+    public long getInitialGeneration(){
+        return initialGeneration;
+    }
+    public GameModel.GameGeometry getGeometry(){
+        return geometry;
+    }
+    public GameEngine getEngine(){
+        return engine;
+    }
+    public Rule getRule(){
+        return rule;
+    }
+
+    public void setGeometry(GameModel.GameGeometry geo){
+        geometry = geo;
+        this.resetCycles();
+        this.clearHistory();
+        if (planeEngine != null) {
+            planeEngine.dispose();
+            planeEngine = null;
+        }
+    }
+
+    /**
+     * Replaces the engine, disposing of the old one.
+     * @param eng the new engine
+     * @throws UnsupportedOperationException if the engine cannot follow the rule, in which case the old engine is kept
+     */
+    public void setEngine(GameEngine eng){
+        eng.setRule(rule);
+        engine.dispose();
+        engine = eng;
+    }
+
+    /**
+     * Sets the rule the following generations are calculated with. The history and any cycle found are
+     * forgotten, as they followed the old rule.
+     * @param rule the new rule
+     * @throws UnsupportedOperationException if the engine cannot follow <code>rule</code>
+     */
+    public void setRule(Rule rule){
+        engine.setRule(rule);
+        if (planeEngine != null) planeEngine.setRule(rule);
+        this.rule = rule;
+        this.resetCycles();
+        this.clearHistory();
+    }
+
+    /**
+     * Makes <code>state</code> both the initial and the current state, at generation 0.
+     * @param state
+     */
+    public void load(GameState state){
+        this.load(state, 0);
+    }
+
+    /**
+     * Makes <code>state</code> both the initial and the current state, at the given generation (for states
+     * saved part way through a game, see <code>BoardSnapshot</code>).
+     * @param state
+     * @param generation
+     */
+    public void load(GameState state, long generation){
+        initialState = state;
+        currentState = state;
+        this.generation = generation;
+        initialGeneration = generation;
+        this.markAllChanged();
+        this.resetCycles();
+        this.clearHistory();
+    }
+
+    /**
+     * Returns to the initial state, at its generation.
+     */
+    public void reset(){
+        currentState = initialState;
+        generation = initialGeneration;
+        this.markAllChanged();
+        this.resetCycles();
+    }
+
+    private void markAllChanged(){
+        if (changes != null) {
+            changes.clear(currentState.words.length);
+            changes.addAll();
+        }
+    }
+
+    /**
+     * Releases the engines' threads and caches.
+     */
+    public void dispose(){
+        engine.dispose();
+        if (planeEngine != null) {
+            planeEngine.dispose();
+            planeEngine = null;
+        }
+    }
+
+    //Double buffering
+    private boolean doubleBuffered = true;
+    private GameState bufferA;
+    private GameState bufferB;
+
+    /**
+     * When double buffered (the default), the simulation owns two states and each step writes into whichever
+     * of them is not current, so no states are allocated in steady state. States returned by
+     * <code>getCurrentState()</code> are then overwritten two steps later; switch this off if they must
+     * be kept. The initial state is never written to.
+     * @param doubleBuffered
+     */
+    public void setDoubleBuffered(boolean doubleBuffered){
+        this.doubleBuffered = doubleBuffered;
+        if (!doubleBuffered) {
+            bufferA = null;
+            bufferB = null;
+        }
+    }
+    public boolean isDoubleBuffered(){
+        return doubleBuffered;
+    }
+
+    /**
+     * @return the state the next step should be written to
+     */
+    private GameState nextBuffer(){
+        if (!doubleBuffered) return new GameState(currentState.size);
+        if (bufferA == null || !bufferA.size.equals(currentState.size)) {
+            bufferA = new GameState(currentState.size);
+            bufferB = new GameState(currentState.size);
+        }
+        return currentState == bufferA ? bufferB : bufferA;
+    }
+
+    /**
+     * @return the engine to step with: the selected engine, unless the geometry is unbounded and the engine
+     * does not support that, in which case a <code>TiledPlaneEngine</code>
+     */
+    private GameEngine activeEngine(){
+        if (!geometry.isUnbounded() || engine.supportsUnboundedGeometry()) return engine;
+        if (planeEngine == null) {
+            planeEngine = new TiledPlaneEngine();
+            planeEngine.setRule(rule);
+        }
+        return planeEngine;
+    }
+
+    //Change tracking
+    private ChangeSet changes;
+
+    /**
+     * When tracking changes, each step and jump records the words of the board that changed in a
+     * <code>ChangeSet</code>, returned by <code>getChanges()</code>. Off by default.
+     * @param tracksChanges
+     */
+    public void setTracksChanges(boolean tracksChanges){
+        changes = tracksChanges ? new ChangeSet() : null;
+    }
+    public boolean tracksChanges(){
+        return changes != null;
+    }
+
+    /**
+     * @return the words that changed in the last step or jump (the whole board after loading or resetting),
+     * or null if changes are not tracked. The set is reused by the next step.
+     */
+    public ChangeSet getChanges(){
+        return changes;
+    }
+
+    //Cycle detection
+    private CycleDetector cycles;
+
+    /**
+     * When detecting cycles, each step checks whether the board has returned to a state it was in within the
+     * last 256 generations (see <code>CycleDetector</code>), and <code>getPeriod()</code> reports the period.
+     * Off by default. Boards on an unbounded geometry are never reported as cycling, as cells beyond the grid
+     * may still be moving.
+     * @param detectsCycles
+     */
+    public void setDetectsCycles(boolean detectsCycles){
+        cycles = detectsCycles ? new CycleDetector() : null;
+    }
+    public boolean detectsCycles(){
+        return cycles != null;
+    }
+
+    /**
+     * @return the period the current generation repeats with (1 for a still life), or 0 if it is not known
+     * to repeat
+     */
+    public int getPeriod(){
+        return cycles == null ? 0 : cycles.getPeriod();
+    }
+
+    /**
+     * Advances a repeating board by whole cycles without stepping, as the state after them is the current state.
+     * @param cycleCount number of periods to advance by
+     * @throws IllegalStateException if the board is not known to repeat
+     */
+    public void skipCycles(long cycleCount){
+        int period = this.getPeriod();
+        if (period == 0) throw new IllegalStateException("The board is not known to repeat");
+        generation += cycleCount * period;
+        cycles.skip(cycleCount * period);
+        if (changes != null) changes.clear(currentState.words.length);
+    }
+
+    private void resetCycles(){
+        if (cycles != null) cycles.reset();
+    }
+
+    //History
+    private GenerationHistory history;
+
+    /**
+     * When recording history, each step is kept in a <code>GenerationHistory</code> (keyframes and deltas, up
+     * to about 64MB), so the game can be stepped back with <code>stepBack()</code> or returned to an earlier
+     * generation with <code>seek(long)</code>. Off by default. Jumps, and steps on an unbounded geometry, whose
+     * cells beyond the grid are not kept, are not recorded.
+     * @param recordsHistory
+     */
+    public void setRecordsHistory(boolean recordsHistory){
+        history = recordsHistory ? new GenerationHistory() : null;
+    }
+    public boolean recordsHistory(){
+        return history != null;
+    }
+
+    /**
+     * @return the earliest generation <code>seek</code> can return to: the current generation unless history
+     * is recorded
+     */
+    public long getEarliestGeneration(){
+        if (history == null || !history.contains(generation)) return generation;
+        return history.getEarliestGeneration();
+    }
+
+    /**
+     * @return the latest generation <code>seek</code> can move to without stepping: the latest held in the
+     * history if the current board is as it was recorded there, otherwise the current generation
+     */
+    public long getLatestHeldGeneration(){
+        if (history == null || !history.isCurrent(currentState) || !history.contains(generation)) return generation;
+        return history.getLatestGeneration();
+    }
+
+    /**
+     * @return true if the previous generation is held in the history
+     */
+    public boolean canStepBack(){
+        return history != null && history.contains(generation - 1);
+    }
+
+    /**
+     * Returns to the previous generation.
+     * @throws IllegalStateException if it is not held in the history
+     */
+    public void stepBack(){
+        if (!this.canStepBack()) throw new IllegalStateException("The previous generation is not held in the history");
+        this.seek(generation - 1);
+    }
+
+    /**
+     * Moves to <code>target</code>. Generations held in the history are rebuilt from it; later generations are
+     * reached with <code>stepTowards</code> (from the last one held, if the current board has not been edited
+     * since it was recorded).
+     * Edits made to a generation are lost when moving away from it, as the history holds the generation as it
+     * was stepped to.
+     * @param target the generation to move to
+     * @throws IllegalArgumentException if <code>target</code> is earlier than <code>getEarliestGeneration()</code>
+     */
+    public void seek(long target){
+        if (target == generation) return;
+        if (history != null && history.contains(target) && (target < generation || history.isCurrent(currentState))) {
+            GameState next = this.nextBuffer();
+            history.restore(target, currentState, generation, next);
+            if (changes != null) {
+                changes.clear(next.words.length);
+                changes.addDifferences(currentState, next);
+            }
+            this.resetCycles();
+            currentState = next;
+            generation = target;
+            return;
+        }
+        if (target < generation) {
+            throw new IllegalArgumentException("Generation " + target + " is not held in the history");
+        }
+        boolean several = target - generation > 1;
+        while (generation < target) {
+            this.stepTowards(target);
+        }
+        if (several) this.markAllChanged();
+    }
+
+    /**
+     * Advances towards the later generation <code>target</code>, without passing it, as far as one move goes:
+     * to the latest generation held in the history, by whole cycles if the board repeats, by the longest jump
+     * if the geometry is unbounded and the engine jumps, or else by one generation.
+     * @param target a generation later than the current one
+     * @throws IllegalArgumentException if <code>target</code> is not later than the current generation
+     */
+    public void stepTowards(long target){
+        long remaining = target - generation;
+        if (remaining <= 0) {
+            throw new IllegalArgumentException("Generation " + target + " is not later than " + generation);
+        }
+        int period = this.getPeriod();
+        long held = this.getLatestHeldGeneration();
+        if (held > generation) {
+            this.seek(Math.min(held, target));
+        }else if (period > 0 && remaining >= period) {
+            this.skipCycles(remaining / period);
+        }else if (remaining > 1 && geometry.isUnbounded() && this.canJump()) {
+            // Stepping keeps the cells beyond the grid too, so a jump gives the same board
+            this.jump(Math.min(60, 63 - Long.numberOfLeadingZeros(remaining)));
+        }else{
+            this.step();
+        }
+    }
+
+    private void clearHistory(){
+        if (history != null) history.clear();
+    }
+
+    //Stepping
+
+    /**
+     * Advances the current state by one generation.
+     */
+    public void step(){
+        GameState next = this.nextBuffer();
+        GameEngine active = this.activeEngine();
+        active.nextGeneration(currentState, next, geometry);
+        if (changes != null) {
+            changes.clear(next.words.length);
+            active.collectChanges(currentState, next, changes);
+        }
+        if (cycles != null) {
+            if (geometry.isUnbounded()) {
+                cycles.reset();
+            }else{
+                cycles.update(currentState, next, changes, generation + 1);
+            }
+        }
+        if (history != null) {
+            if (geometry.isUnbounded()) {
+                history.clear();
+            }else{
+                history.record(currentState, next, changes, generation + 1);
+            }
+        }
+        currentState = next;
+        generation++;
+    }
+
+    /**
+     * Advances the current state by 2<sup>log2Generations</sup> generations at once. Only supported by
+     * <code>HashLifeEngine</code>, which treats the grid as a window onto an unbounded plane for the jump:
+     * cells that leave the grid are kept, and may return later.
+     * @param log2Generations base-2 logarithm of the number of generations to advance (0-60)
+     * @throws IllegalStateException if the engine is not a <code>HashLifeEngine</code>, or the geometry wraps around
+     */
+    public void jump(int log2Generations){
+        if (!(engine instanceof HashLifeEngine)) {
+            throw new IllegalStateException("Jumping requires the HashLife engine");
+        }
+        GameState next = this.nextBuffer();
+        ((HashLifeEngine)engine).jump(currentState, next, geometry, log2Generations);
+        if (changes != null) {
+            changes.clear(next.words.length);
+            changes.addDifferences(currentState, next);
+        }
+        this.resetCycles();
+        this.clearHistory();
+        currentState = next;
+        generation += 1L << log2Generations;
+    }
+
+    /**
+     * @return true if <code>jump</code> is supported with the current engine
+     */
+    public boolean canJump(){
+        return engine instanceof HashLifeEngine;
+    }
+}
@@ -0,0 +1,427 @@
+package gameoflife;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import javax.swing.SwingUtilities;
+
+/**
+ * Steps a <code>Simulation</code> on a dedicated thread, so that slow generations never hold up the Event
+ * Dispatch Thread. After each generation it publishes a <code>Snapshot</code> of the board for the UI to
+ * display, unless the UI has not yet taken the previous one: frames are then dropped, and their changes merged
+ * into the next snapshot published.
+ * <p>Snapshots are a few buffers used over and over: the UI hands each one back with <code>recycle</code> once
+ * it displays a later one, and publishing copies into it only the words that changed since it last held a
+ * generation, so running the game allocates nothing however large the board.</p>
+ * <p>While the thread is running, the simulation must only be touched through <code>execute</code>, which
+ * queues work to be done between generations, whose changes to the board are shown with the next snapshot.
+ * When it is not, <code>execute</code> runs the work straight away.</p>
+ * @author thomdikdave
+ */
+class SimulationThread implements Runnable {
+
+    /**
+     * A generation as published to the UI, which must not change it
+     */
+    static final class Snapshot {
+        GameState state;
+        long generation;
+        /**
+         * The words that changed since the previous snapshot taken
+         */
+        ChangeSet changes = new ChangeSet();
+        /**
+         * The period the generation repeats with, or 0 (see <code>Simulation.getPeriod</code>)
+         */
+        int period;
+        /**
+         * The words that may have changed on the board since <code>state</code> was copied from it
+         */
+        private final ChangeSet stale = new ChangeSet();
+
+        private Snapshot(){
+            stale.addAll();
+        }
+    }
+
+    /**
+     * Work to be done on the simulation that reports the words of the board it changes
+     */
+    interface Task {
+        /**
+         * @param changes the set to add the words changed to, so that they are shown with the next snapshot
+         */
+        void run(ChangeSet changes);
+    }
+
+    private final Simulation simulation;
+    private final Runnable frameReady;
+    private final Thread thread;
+
+    // Guarded by this
+    private boolean running = false;
+    private boolean seeking = false;
+    private long seekTarget;
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+    private Snapshot pending;
+    private final ArrayDeque<Snapshot> free = new ArrayDeque<>();
+    private volatile long delayNanos = 150_000_000L;
+
+    // Guarded by simulation
+    private ChangeSet dropped = new ChangeSet();
+    private boolean unpublished = false;
+    private final ArrayList<Snapshot> buffers = new ArrayList<>();
+
+    /**
+     * @param simulation the simulation to step, which must track changes
+     * @param frameReady called on the Event Dispatch Thread when a snapshot is ready to be taken
+     */
+    SimulationThread(Simulation simulation, Runnable frameReady){
+        this.simulation = simulation;
+        this.frameReady = frameReady;
+        thread = new Thread(this, "Game of Life simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    //Controlling
+
+    /**
+     * Starts stepping, one generation per delay
+     */
+    synchronized void start(){
+        running = true;
+        seeking = false;
+        this.notifyAll();
+    }
+
+    /**
+     * Stops stepping after the generation in progress, if any. Does not wait for it.
+     */
+    synchronized void stop(){
+        running = false;
+        seeking = false;
+        this.notifyAll();
+    }
+
+    /**
+     * Starts moving the simulation to a later generation without any delay, with
+     * <code>Simulation.stepTowards</code>, and stops once it gets there. Each move is published as a generation
+     * stepped to would be. <code>start</code> and <code>stop</code> end the seek where it is.
+     * @param generation a generation later than the current one
+     */
+    synchronized void seek(long generation){
+        running = true;
+        seeking = true;
+        seekTarget = generation;
+        this.notifyAll();
+    }
+
+    synchronized boolean isRunning(){
+        return running;
+    }
+
+    /**
+     * @return true while moving to the generation given to <code>seek</code>
+     */
+    synchronized boolean isSeeking(){
+        return seeking;
+    }
+
+    /**
+     * @param delayMillis time from the start of one generation to the start of the next. Generations that take
+     * longer follow each other without a pause.
+     */
+    void setDelay(int delayMillis){
+        delayNanos = delayMillis * 1_000_000L;
+    }
+
+    /**
+     * Runs <code>task</code> on the simulation: between generations if the thread is running, otherwise
+     * straight away (after waiting for any generation still in progress). Tasks run in the order given.
+     */
+    void execute(Runnable task){
+        Task marksAll = changes -> {
+            task.run();
+            changes.addAll();
+        };
+        if (this.enqueue(marksAll)) return;
+        synchronized (simulation) {
+            this.runTasks();
+            task.run();
+            // Not knowing what the task changed, no buffer holds a word that can be relied on
+            for (Snapshot buffer : buffers) {
+                buffer.stale.addAll();
+            }
+        }
+    }
+
+    /**
+     * Runs <code>task</code> on the simulation as <code>execute(Runnable)</code> does, but only the words it
+     * reports are compared with the board displayed. When it runs straight away, the board is published
+     * afterwards, replacing any snapshot not yet taken.
+     */
+    void execute(Task task){
+        if (this.enqueue(task)) return;
+        synchronized (simulation) {
+            this.runTasks();
+            task.run(this.unshownChanges());
+            this.publishLatest();
+        }
+    }
+
+    /**
+     * @return true if <code>task</code> was queued, because the thread is running
+     */
+    private synchronized boolean enqueue(Task task){
+        if (!running) return false;
+        tasks.add(task);
+        this.notifyAll();
+        return true;
+    }
+
+    /**
+     * Discards any snapshot not yet taken, and the changes of dropped frames. Call after changing the board
+     * while stopped, so that older generations are not displayed over it.
+     * @return true if there was a snapshot or dropped frame to discard, in which case the UI is behind by
+     * more than the last change to the board
+     */
+    boolean discardFrames(){
+        synchronized (simulation) {
+            ChangeSet changes = this.unshownChanges();
+            this.markStale(changes);
+            boolean out;
+            synchronized (this) {
+                out = pending != null || unpublished;
+                if (pending != null) free.add(pending);
+                pending = null;
+            }
+            changes.clear(changes.getWordCount());
+            unpublished = false;
+            return out;
+        }
+    }
+
+    /**
+     * @return the latest snapshot published and not yet taken, or null
+     */
+    synchronized Snapshot takeSnapshot(){
+        Snapshot out = pending;
+        pending = null;
+        return out;
+    }
+
+    /**
+     * Hands back a snapshot taken, once the UI no longer displays it, to be used for a later generation
+     * @param snapshot a snapshot taken, or null
+     */
+    synchronized void recycle(Snapshot snapshot){
+        if (snapshot != null) free.add(snapshot);
+    }
+
+    //Stepping
+
+    @Override
+    public void run() {
+        while (true) {
+            synchronized (simulation) {
+                if (unpublished && !this.isRunning()) this.publishLatest();
+            }
+            synchronized (this) {
+                while (!running && tasks.isEmpty()) {
+                    try {
+                        this.wait();
+                    } catch (InterruptedException e) {
+                    }
+                }
+            }
+            long start = System.nanoTime();
+            boolean stepped = false;
+            synchronized (simulation) {
+                this.runTasks();
+                if (!this.seekAndPublish() && this.isRunning()) {
+                    this.stepAndPublish();
+                    stepped = true;
+                }
+            }
+            if (stepped) this.sleepUntil(start + delayNanos);
+        }
+    }
+
+    /**
+     * Advances the simulation by one generation and publishes it. Must hold the simulation's lock.
+     */
+    void stepAndPublish(){
+        simulation.step();
+        this.publish();
+    }
+
+    /**
+     * When seeking, makes the next move towards the generation sought and publishes it, stopping once there.
+     * Must hold the simulation's lock.
+     * @return true if seeking
+     */
+    private boolean seekAndPublish(){
+        long target;
+        synchronized (this) {
+            if (!seeking) return false;
+            target = seekTarget;
+        }
+        if (simulation.getGeneration() < target) {
+            simulation.stepTowards(target);
+            this.publish();
+        }
+        if (simulation.getGeneration() >= target) {
+            synchronized (this) {
+                if (seeking && seekTarget == target) this.stop();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the tasks queued, adding the words they change to those of the next snapshot
+     */
+    private void runTasks(){
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = tasks.poll();
+            }
+            if (task == null) return;
+            try {
+                task.run(this.unshownChanges());
+            } catch (RuntimeException e) {
+                Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+                handler.uncaughtException(thread, e);
+                this.unshownChanges().addAll();
+            }
+            unpublished = true;
+        }
+    }
+
+    /**
+     * @return the changes since the last snapshot published, for a board of the current state's size
+     */
+    private ChangeSet unshownChanges(){
+        int wordCount = simulation.getCurrentState().words.length;
+        if (dropped.getWordCount() != wordCount) {
+            dropped.clear(wordCount);
+            dropped.addAll();
+        }
+        return dropped;
+    }
+
+    /**
+     * Publishes the current generation if the last snapshot has been taken, otherwise adds its changes to
+     * those of the dropped frames
+     */
+    private void publish(){
+        this.unshownChanges().addAll(simulation.getChanges());
+        boolean schedule;
+        synchronized (this) {
+            schedule = pending == null;
+        }
+        unpublished = !schedule;
+        if (schedule) this.publish(this.freeBuffer());
+    }
+
+    /**
+     * Once stopped, replaces a snapshot not yet taken with the latest generation, so the last frames dropped
+     * are still displayed
+     */
+    private void publishLatest(){
+        Snapshot buffer;
+        synchronized (this) {
+            buffer = pending;
+            pending = null;
+        }
+        if (buffer == null) {
+            buffer = this.freeBuffer();
+        }else{
+            // The changes of the snapshot replaced were never shown either
+            ChangeSet changes = this.unshownChanges();
+            if (buffer.changes.getWordCount() == changes.getWordCount()) {
+                changes.addAll(buffer.changes);
+            }else{
+                changes.addAll();
+            }
+        }
+        unpublished = false;
+        this.publish(buffer);
+    }
+
+    /**
+     * Copies the current generation into <code>buffer</code> and publishes it with the changes since the last
+     * snapshot published. Only the words that changed since the buffer last held a generation are copied.
+     */
+    private void publish(Snapshot buffer){
+        GameState state = simulation.getCurrentState();
+        ChangeSet changes = this.unshownChanges();
+        this.markStale(changes);
+        int wordCount = state.words.length;
+        if (buffer.state == null || !buffer.state.size.equals(state.size)) {
+            buffer.state = new GameState(state.size);
+            buffer.state.copyFrom(state);
+        }else if (buffer.stale.isAll() || buffer.stale.getWordCount() != wordCount) {
+            buffer.state.copyFrom(state);
+        }else{
+            long[] from = state.words;
+            long[] to = buffer.state.words;
+            for (int k = 0; k < buffer.stale.size(); k++) {
+                int i = buffer.stale.word(k);
+                to[i] = from[i];
+            }
+        }
+        buffer.stale.clear(wordCount);
+        buffer.generation = simulation.getGeneration();
+        buffer.period = simulation.getPeriod();
+        dropped = buffer.changes;
+        buffer.changes = changes;
+        dropped.clear(wordCount);
+        synchronized (this) {
+            pending = buffer;
+        }
+        SwingUtilities.invokeLater(frameReady);
+    }
+
+    /**
+     * @return a buffer not in use by the UI, allocating one if there is none
+     */
+    private Snapshot freeBuffer(){
+        Snapshot out;
+        synchronized (this) {
+            out = free.poll();
+        }
+        if (out == null) {
+            out = new Snapshot();
+            buffers.add(out);
+        }
+        return out;
+    }
+
+    /**
+     * Notes in every buffer that the words in <code>changes</code> may no longer be as it holds them
+     */
+    private void markStale(ChangeSet changes){
+        for (Snapshot buffer : buffers) {
+            if (buffer.stale.getWordCount() == changes.getWordCount()) {
+                buffer.stale.addAll(changes);
+            }else{
+                buffer.stale.addAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until <code>time</code> (as <code>System.nanoTime()</code>), or until stopped
+     */
+    private synchronized void sleepUntil(long time){
+        long remaining;
+        while ((remaining = time - System.nanoTime()) > 0 && running) {
+            try {
+                this.wait(remaining / 1_000_000L, (int)(remaining % 1_000_000L));
+            } catch (InterruptedException e) {
+            }
+        }
+    }
+}
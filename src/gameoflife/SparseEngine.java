@@ -0,0 +1,168 @@
+package gameoflife;
+
+/**
+ * Engine that only recalculates the parts of the board that can change. It remembers which words (64-cell runs
+ * of a row) changed in the previous generation; only those words and the words adjacent to their changed cells
+ * can change in the next generation, so only they are evaluated. The cost of a step therefore follows the
+ * activity on the board rather than its area.
+ * <p>The engine relies on the model's double buffering: the state it is asked to write to is the state it read
+ * from in the previous step, so it is brought up to date by copying just the words that changed. Whenever that
+ * is not the case (the first step, edits, a new rule or geometry, or double buffering switched off) it steps the
+ * whole board once.</p>
+ * @author thomdikdave
+ */
+class SparseEngine implements GameEngine {
+    private int[] changed = new int[0];
+    private int changedCount;
+    private int[] candidates = new int[0];
+    private int candidateCount;
+    private long[] scheduled = new long[0];
+    private long[] emptyRow = new long[0];
+    private Rule rule = Rule.conway;
+
+    private GameState lastCurrent;
+    private GameState lastNext;
+    private int lastCurrentModCount;
+    private int lastNextModCount;
+    private int[] lastColumns;
+    private int[] lastRows;
+
+    /**
+     * Words that did not change last generation may change under a new rule, so the next step covers the whole
+     * board
+     */
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = rule;
+        lastNext = null;
+    }
+
+    @Override
+    public void nextGeneration(GameState current, GameState next, GameModel.GameGeometry geo) {
+        int width = current.size.width;
+        int height = current.size.height;
+        int wpr = current.wordsPerRow;
+        if (wpr == 0) return;
+        int[] columns = geo.columnTable(width);
+        if (!BitwiseEngine.isWordCompatible(columns, width)) {
+            lastNext = null;
+            current.getNextGenerationState(geo, rule, next);
+            return;
+        }
+        boolean wrapX = columns[0] >= 0;
+        int[] rows = geo.rowTable(height);
+        if (columns != lastColumns || rows != lastRows) {
+            // Under another geometry the words at the edges may change without any change beside them
+            lastColumns = columns;
+            lastRows = rows;
+            lastNext = null;
+        }
+        int wordCount = current.words.length;
+        if (changed.length != wordCount) {
+            changed = new int[wordCount];
+            candidates = new int[wordCount];
+            scheduled = new long[(wordCount + 63) >>> 6];
+            emptyRow = new long[wpr];
+            lastNext = null;
+        }
+
+        boolean continuing = current == lastNext && current.modCount == lastNextModCount
+                && next == lastCurrent && next.modCount == lastCurrentModCount;
+        if (continuing) {
+            this.stepChanged(current, next, rows, wrapX);
+        }else{
+            this.stepAll(current, next, rows, wrapX);
+        }
+
+        lastCurrent = current;
+        lastNext = next;
+        lastCurrentModCount = current.modCount;
+        lastNextModCount = next.modCount;
+    }
+
+    /**
+     * Steps every word, recording the words that changed
+     */
+    private void stepAll(GameState current, GameState next, int[] rows, boolean wrapX){
+        int wpr = current.wordsPerRow;
+        changedCount = 0;
+        for (int y = 0; y < current.size.height; y++) {
+            BitwiseEngine.stepRow(current, next, y, rows[y], rows[y + 2], wrapX, emptyRow, rule);
+            for (int w = y * wpr; w < (y + 1) * wpr; w++) {
+                if (next.words[w] != current.words[w]) changed[changedCount++] = w;
+            }
+        }
+    }
+
+    /**
+     * Brings <code>next</code> (two generations old) up to date, then steps only the words around the
+     * changes of the previous generation
+     */
+    private void stepChanged(GameState current, GameState next, int[] rows, boolean wrapX){
+        int wpr = current.wordsPerRow;
+        int last = wpr - 1;
+        int edge = (current.size.width - 1) & 63;
+        candidateCount = 0;
+        for (int k = 0; k < changedCount; k++) {
+            int w = changed[k];
+            long difference = next.words[w] ^ current.words[w];
+            next.words[w] = current.words[w];
+
+            int y = w / wpr;
+            int i = w - y * wpr;
+            boolean westToo = (difference & 1) != 0 && (i > 0 || wrapX);
+            boolean eastToo = i < last ? difference < 0 : wrapX && (difference & (1L << edge)) != 0;
+            int west = i > 0 ? i - 1 : last;
+            int east = i < last ? i + 1 : 0;
+            for (int r = 0; r <= 2; r++) {
+                int row = rows[y + r];
+                if (row < 0) continue;
+                this.schedule(row * wpr + i);
+                if (westToo) this.schedule(row * wpr + west);
+                if (eastToo) this.schedule(row * wpr + east);
+            }
+        }
+
+        changedCount = 0;
+        for (int k = 0; k < candidateCount; k++) {
+            int w = candidates[k];
+            scheduled[w >>> 6] &= ~(1L << w);
+            int y = w / wpr;
+            long result = BitwiseEngine.stepWord(current, y, w - y * wpr, rows[y], rows[y + 2], wrapX, emptyRow, rule);
+            if (result != current.words[w]) {
+                next.words[w] = result;
+                changed[changedCount++] = w;
+            }
+        }
+    }
+
+    private void schedule(int w){
+        long mask = 1L << w;
+        if ((scheduled[w >>> 6] & mask) == 0) {
+            scheduled[w >>> 6] |= mask;
+            candidates[candidateCount++] = w;
+        }
+    }
+
+    /**
+     * The words that changed are already listed, so nothing is compared unless the last step fell back to
+     * the cellwise rules.
+     */
+    @Override
+    public void collectChanges(GameState previous, GameState next, ChangeSet changes) {
+        if (previous != lastCurrent || next != lastNext) {
+            changes.addDifferences(previous, next);
+            return;
+        }
+        for (int k = 0; k < changedCount; k++) {
+            changes.add(changed[k]);
+        }
+    }
+
+    /**
+     * @return the number of words that changed in the last generation
+     */
+    int getChangedWordCount(){
+        return changedCount;
+    }
+}
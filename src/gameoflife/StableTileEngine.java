@@ -0,0 +1,240 @@
+package gameoflife;
+
+import java.util.Arrays;
+
+/**
+ * Engine that skips the parts of the board that have settled into still lifes or period-2 oscillators, as
+ * QuickLife does. The board is divided into tiles of one word (64 columns) by <code>tileHeight</code> rows, and
+ * each tile records whether it changed in the last generation, and whether it differs from two generations ago.
+ * A tile whose neighbourhood (itself and the eight tiles around it) did not change at all, or is as it was two
+ * generations ago, has a next generation equal to its previous one, so it is left as it is in the state being
+ * written to, which with double buffering already holds the previous generation: still tiles are skipped, and
+ * period-2 tiles replayed, without being evaluated. The other tiles are stepped a word at a time as
+ * <code>BitwiseEngine</code> steps them, so the results are exact, though comparing every word stepped with the
+ * two generations before makes a board that is busy all over slower to step than with <code>BitwiseEngine</code>.
+ * <p>Like <code>SparseEngine</code>, it relies on the model's double buffering. Whenever the state it is asked to
+ * write to is not the one it read from in the previous step (the first step, edits, or double buffering
+ * switched off), and after a new rule or geometry, every tile is evaluated. Geometries whose rows a tile cannot
+ * follow (see <code>HaloBuffer.isHaloCompatible</code>) are stepped whole, as <code>BitwiseEngine</code> does.</p>
+ * @author thomdikdave
+ */
+class StableTileEngine implements GameEngine {
+    static final int tileHeight = 32;
+
+    /**
+     * Tile flags: the tile differs from the previous generation, and from the one before that
+     */
+    private static final int Changed = 1;
+    private static final int ChangedSinceTwo = 2;
+
+    private ByteGrid flags = new ByteGrid(0, 0);
+    private ByteGrid nextFlags = new ByteGrid(0, 0);
+    private int[] changedTiles = new int[0];
+    private int changedTileCount;
+    private int steppedTileCount;
+    private long[] emptyRow = new long[0];
+    /**
+     * The tiles of a tile row to evaluate, and what changed in each
+     */
+    private int[] active = new int[0];
+    private long[] sinceOne = new long[0];
+    private long[] sinceTwo = new long[0];
+    private Rule rule = Rule.conway;
+
+    private GameState lastCurrent;
+    private GameState lastNext;
+    private int lastCurrentModCount;
+    private int lastNextModCount;
+    private int[] lastColumns;
+    private int[] lastRows;
+
+    /**
+     * Settled tiles may change under a new rule, so the next step evaluates every tile
+     */
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = rule;
+        lastNext = null;
+    }
+
+    @Override
+    public void nextGeneration(GameState current, GameState next, GameModel.GameGeometry geo) {
+        int width = current.size.width;
+        int height = current.size.height;
+        int wpr = current.wordsPerRow;
+        if (wpr == 0) return;
+        int[] columns = geo.columnTable(width);
+        if (!BitwiseEngine.isWordCompatible(columns, width)) {
+            lastNext = null;
+            current.getNextGenerationState(geo, rule, next);
+            return;
+        }
+        boolean wrapX = columns[0] >= 0;
+        int[] rows = geo.rowTable(height);
+        if (emptyRow.length < wpr) {
+            emptyRow = new long[wpr];
+        }
+        if (!HaloBuffer.isHaloCompatible(rows, height)) {
+            lastNext = null;
+            for (int y = 0; y < height; y++) {
+                BitwiseEngine.stepRow(current, next, y, rows[y], rows[y + 2], wrapX, emptyRow, rule);
+            }
+            return;
+        }
+        if (columns != lastColumns || rows != lastRows) {
+            // Settled tiles at the edges may have new neighbours under another geometry
+            lastColumns = columns;
+            lastRows = rows;
+            lastNext = null;
+        }
+        boolean wrapY = rows[0] >= 0;
+        int tileRows = (height + tileHeight - 1) / tileHeight;
+        if (flags.size.width != wpr || flags.size.height != tileRows) {
+            flags = new ByteGrid(wpr, tileRows);
+            nextFlags = new ByteGrid(wpr, tileRows);
+            changedTiles = new int[wpr * tileRows];
+            lastNext = null;
+        }
+
+        boolean continuing = current == lastNext && current.modCount == lastNextModCount
+                && next == lastCurrent && next.modCount == lastCurrentModCount;
+        if (!continuing) flags.fill((byte)(Changed | ChangedSinceTwo));
+
+        if (active.length < wpr) {
+            active = new int[wpr];
+            sinceOne = new long[wpr];
+            sinceTwo = new long[wpr];
+        }
+        changedTileCount = 0;
+        steppedTileCount = 0;
+        for (int ty = 0; ty < tileRows; ty++) {
+            int above = ty > 0 ? ty - 1 : wrapY ? tileRows - 1 : -1;
+            int below = ty < tileRows - 1 ? ty + 1 : wrapY ? 0 : -1;
+            int activeCount = 0;
+            for (int tx = 0; tx < wpr; tx++) {
+                int left = tx > 0 ? tx - 1 : wrapX ? wpr - 1 : -1;
+                int right = tx < wpr - 1 ? tx + 1 : wrapX ? 0 : -1;
+                int around = this.flagsOfRow(ty, left, tx, right) | this.flagsOfRow(above, left, tx, right)
+                        | this.flagsOfRow(below, left, tx, right);
+                if ((around & Changed) == 0 || (around & ChangedSinceTwo) == 0) {
+                    // The tile's next generation is its previous one, which next already holds. It changes
+                    // now only if it changed last time (period 2), and matches two generations ago either way.
+                    int tile = flags.index(tx, ty);
+                    int flag = flags.getValueAtIndex(tile) & Changed;
+                    nextFlags.setValueAtIndex((byte)flag, tile);
+                    if (flag != 0) changedTiles[changedTileCount++] = tile;
+                }else{
+                    active[activeCount++] = tx;
+                }
+            }
+            if (activeCount == 0) continue;
+            this.stepTiles(current, next, ty, activeCount, rows, wrapX);
+            for (int k = 0; k < activeCount; k++) {
+                int tile = flags.index(active[k], ty);
+                int flag = sinceOne[k] != 0 ? Changed : 0;
+                // Unless continuing, next did not hold the generation before
+                if (sinceTwo[k] != 0 || !continuing) flag |= ChangedSinceTwo;
+                nextFlags.setValueAtIndex((byte)flag, tile);
+                if ((flag & Changed) != 0) changedTiles[changedTileCount++] = tile;
+            }
+            steppedTileCount += activeCount;
+        }
+        ByteGrid swap = flags;
+        flags = nextFlags;
+        nextFlags = swap;
+
+        lastCurrent = current;
+        lastNext = next;
+        lastCurrentModCount = current.modCount;
+        lastNextModCount = next.modCount;
+    }
+
+    /**
+     * @return the flags of the tiles at <code>left</code>, <code>centre</code> and <code>right</code> in tile
+     * row <code>ty</code> combined, leaving out the missing ones (-1)
+     */
+    private int flagsOfRow(int ty, int left, int centre, int right){
+        if (ty < 0) return 0;
+        int out = flags.getValueAtPoint(centre, ty);
+        if (left >= 0) out |= flags.getValueAtPoint(left, ty);
+        if (right >= 0) out |= flags.getValueAtPoint(right, ty);
+        return out;
+    }
+
+    /**
+     * Evaluates the words of the first <code>count</code> tiles of <code>active</code> in tile row
+     * <code>ty</code>, writing them to <code>next</code>, a row at a time. For each tile, the bits that differ
+     * from <code>current</code> are gathered in <code>sinceOne</code>, and those that differ from what
+     * <code>next</code> held in <code>sinceTwo</code>.
+     */
+    private void stepTiles(GameState current, GameState next, int ty, int count, int[] rows, boolean wrapX){
+        int wpr = current.wordsPerRow;
+        int end = Math.min((ty + 1) * tileHeight, current.size.height);
+        long[] in = current.words;
+        long[] out = next.words;
+        Arrays.fill(sinceOne, 0, count, 0);
+        Arrays.fill(sinceTwo, 0, count, 0);
+        for (int y = ty * tileHeight; y < end; y++) {
+            int north = rows[y];
+            int south = rows[y + 2];
+            long[] nRow = north < 0 ? emptyRow : in;
+            int nOff = north < 0 ? 0 : north * wpr;
+            long[] sRow = south < 0 ? emptyRow : in;
+            int sOff = south < 0 ? 0 : south * wpr;
+            int cOff = y * wpr;
+            for (int k = 0; k < count; k++) {
+                int i = active[k];
+                long result;
+                if (i > 0 && i < wpr - 1) {
+                    // The words either side are on the same row, so no edges to check
+                    int n = nOff + i;
+                    int c = cOff + i;
+                    int s = sOff + i;
+                    long nw = nRow[n];
+                    long cw = in[c];
+                    long sw = sRow[s];
+                    result = BitwiseEngine.nextCells(rule, cw,
+                            (nw << 1) | (nRow[n - 1] >>> 63), nw, (nw >>> 1) | (nRow[n + 1] << 63),
+                            (cw << 1) | (in[c - 1] >>> 63), (cw >>> 1) | (in[c + 1] << 63),
+                            (sw << 1) | (sRow[s - 1] >>> 63), sw, (sw >>> 1) | (sRow[s + 1] << 63));
+                }else{
+                    result = BitwiseEngine.stepWord(current, y, i, north, south, wrapX, emptyRow, rule);
+                }
+                int w = cOff + i;
+                sinceOne[k] |= result ^ in[w];
+                sinceTwo[k] |= result ^ out[w];
+                out[w] = result;
+            }
+        }
+    }
+
+    /**
+     * Only the words of tiles that changed are compared, unless the last step did not track tiles.
+     */
+    @Override
+    public void collectChanges(GameState previous, GameState next, ChangeSet changes) {
+        if (previous != lastCurrent || next != lastNext) {
+            changes.addDifferences(previous, next);
+            return;
+        }
+        int wpr = next.wordsPerRow;
+        int height = next.size.height;
+        for (int k = 0; k < changedTileCount; k++) {
+            int tile = changedTiles[k];
+            int tx = tile % wpr;
+            int ty = tile / wpr;
+            int end = Math.min((ty + 1) * tileHeight, height);
+            for (int y = ty * tileHeight; y < end; y++) {
+                int w = y * wpr + tx;
+                if (previous.words[w] != next.words[w]) changes.add(w);
+            }
+        }
+    }
+
+    /**
+     * @return the number of tiles evaluated in the last generation, the rest having been skipped
+     */
+    int getSteppedTileCount(){
+        return steppedTileCount;
+    }
+}
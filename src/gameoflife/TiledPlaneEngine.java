@@ -0,0 +1,253 @@
+package gameoflife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Engine for the unbounded plane. The plane is held as a hash map of 64x64 tiles (one <code>long</code> per tile
+ * row), of which only tiles containing live cells are kept: a tile is created when a cell is about to be born
+ * in it, and released as soon as it empties, so memory follows the population rather than the area it covers.
+ * Each tile links to its eight neighbours, so stepping does not touch the map. A tile is stepped by gathering
+ * it and the edges of its neighbours into a halo round it, and stepping that with <code>HaloBuffer</code>.
+ * <p>The grid is a window onto the plane with its top-left corner at (0,0). Cells leaving the window carry on
+ * evolving, and editing the window leaves the rest of the plane untouched.</p>
+ * @author thomdikdave
+ */
+class TiledPlaneEngine implements GameEngine {
+    static final int tileSize = 64;
+
+    // Neighbour indices
+    private static final int N = 0, NE = 1, E = 2, SE = 3, S = 4, SW = 5, W = 6, NW = 7;
+    private static final int[] neighbourX = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] neighbourY = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    private static final class Tile {
+        final int x, y;
+        long[] cells = new long[tileSize];
+        long[] next = new long[tileSize];
+        final Tile[] neighbours = new Tile[8];
+        int index;
+
+        Tile(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        long row(int r){
+            return cells[r];
+        }
+
+        boolean isEmpty(){
+            for (long row : cells) {
+                if (row != 0) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final long[] emptyRows = new long[tileSize];
+
+    private final HashMap<Long, Tile> tiles = new HashMap<>();
+    private final ArrayList<Tile> tileList = new ArrayList<>();
+    private GameState lastState;
+    private int lastModCount;
+    private Rule rule = Rule.conway;
+    /**
+     * The tile being stepped with its halo: rows of three words (west, the tile, east), from the row above the
+     * tile to the row below
+     */
+    private final long[] halo = new long[3 * (tileSize + 2)];
+
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = rule;
+    }
+
+    @Override
+    public void nextGeneration(GameState current, GameState next, GameModel.GameGeometry geo) {
+        this.synchronise(current);
+        this.step();
+        this.render(next);
+    }
+
+    @Override
+    public boolean supportsUnboundedGeometry() {
+        return true;
+    }
+
+    /**
+     * @return number of tiles currently allocated
+     */
+    int getTileCount(){
+        return tileList.size();
+    }
+
+    /**
+     * @return number of live cells on the whole plane
+     */
+    long population(){
+        long out = 0;
+        for (Tile t : tileList) {
+            for (long row : t.cells) out += Long.bitCount(row);
+        }
+        return out;
+    }
+
+    @Override
+    public void dispose() {
+        tiles.clear();
+        tileList.clear();
+        lastState = null;
+    }
+
+//------------------------------------------------------
+//-------Tiles-------
+//------------------------------------------------------
+
+    private static long key(int x, int y){
+        return ((long)x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private Tile tile(int x, int y, boolean create){
+        Tile t = tiles.get(key(x, y));
+        if (t == null && create) {
+            t = new Tile(x, y);
+            tiles.put(key(x, y), t);
+            t.index = tileList.size();
+            tileList.add(t);
+            for (int i = 0; i < 8; i++) {
+                Tile neighbour = tiles.get(key(x + neighbourX[i], y + neighbourY[i]));
+                t.neighbours[i] = neighbour;
+                if (neighbour != null) neighbour.neighbours[(i + 4) & 7] = t;
+            }
+        }
+        return t;
+    }
+
+    private void release(Tile t){
+        tiles.remove(key(t.x, t.y));
+        Tile moved = tileList.remove(tileList.size() - 1);
+        if (moved != t) {
+            moved.index = t.index;
+            tileList.set(t.index, moved);
+        }
+        for (int i = 0; i < 8; i++) {
+            if (t.neighbours[i] != null) t.neighbours[i].neighbours[(i + 4) & 7] = null;
+        }
+    }
+
+    private Tile neighbour(Tile t, int direction){
+        Tile out = t.neighbours[direction];
+        if (out == null) out = this.tile(t.x + neighbourX[direction], t.y + neighbourY[direction], true);
+        return out;
+    }
+
+//------------------------------------------------------
+//-------Stepping-------
+//------------------------------------------------------
+
+    private void step(){
+        // Make room for births across the edges of the occupied tiles
+        int occupied = tileList.size();
+        for (int k = 0; k < occupied; k++) {
+            Tile t = tileList.get(k);
+            long top = t.cells[0];
+            long bottom = t.cells[tileSize - 1];
+            long left = 0;
+            long right = 0;
+            for (long row : t.cells) {
+                left |= row & 1;
+                right |= row >>> 63;
+            }
+            if (top != 0) this.neighbour(t, N);
+            if (bottom != 0) this.neighbour(t, S);
+            if (left != 0) this.neighbour(t, W);
+            if (right != 0) this.neighbour(t, E);
+            if ((top & 1) != 0) this.neighbour(t, NW);
+            if (top < 0) this.neighbour(t, NE);
+            if ((bottom & 1) != 0) this.neighbour(t, SW);
+            if (bottom < 0) this.neighbour(t, SE);
+        }
+
+        for (Tile t : tileList) {
+            this.stepTile(t);
+        }
+
+        for (int k = tileList.size() - 1; k >= 0; k--) {
+            Tile t = tileList.get(k);
+            long[] swap = t.cells;
+            t.cells = t.next;
+            t.next = swap;
+            if (t.isEmpty()) this.release(t);
+        }
+    }
+
+    private void stepTile(Tile t){
+        Tile[] n = t.neighbours;
+        long[] west = n[W] == null ? emptyRows : n[W].cells;
+        long[] east = n[E] == null ? emptyRows : n[E].cells;
+        for (int r = 0; r < tileSize; r++) {
+            halo[3 * r + 3] = west[r];
+            halo[3 * r + 4] = t.cells[r];
+            halo[3 * r + 5] = east[r];
+        }
+        halo[0] = n[NW] == null ? 0 : n[NW].row(tileSize - 1);
+        halo[1] = n[N] == null ? 0 : n[N].row(tileSize - 1);
+        halo[2] = n[NE] == null ? 0 : n[NE].row(tileSize - 1);
+        int below = 3 * (tileSize + 1);
+        halo[below] = n[SW] == null ? 0 : n[SW].row(0);
+        halo[below + 1] = n[S] == null ? 0 : n[S].row(0);
+        halo[below + 2] = n[SE] == null ? 0 : n[SE].row(0);
+        HaloBuffer.stepRows(halo, 3, 1, 0, tileSize, rule, t.next, 1, 0, -1L);
+    }
+
+//------------------------------------------------------
+//-------Converting to and from GameStates-------
+//------------------------------------------------------
+
+    /**
+     * Loads the window from <code>current</code>, unless it is the state this engine last wrote and has not
+     * been edited. Edits to that state replace only the window; any other state replaces the whole plane.
+     */
+    private void synchronise(GameState current){
+        if (current == lastState && current.modCount == lastModCount) return;
+        if (current != lastState) {
+            this.dispose();
+        }
+        int width = current.size.width;
+        int height = current.size.height;
+        int wpr = current.wordsPerRow;
+        long lastMask = -1L >>> (-width & 63);
+        for (int ty = 0; ty * tileSize < height; ty++) {
+            for (int tx = 0; tx < wpr; tx++) {
+                Tile t = this.tile(tx, ty, false);
+                long mask = tx < wpr - 1 ? -1L : lastMask;
+                for (int r = 0; r < tileSize && ty * tileSize + r < height; r++) {
+                    long word = current.words[(ty * tileSize + r) * wpr + tx];
+                    if (t == null && word == 0) continue;
+                    if (t == null) t = this.tile(tx, ty, true);
+                    t.cells[r] = (t.cells[r] & ~mask) | word;
+                }
+                if (t != null && t.isEmpty()) this.release(t);
+            }
+        }
+    }
+
+    private void render(GameState next){
+        Arrays.fill(next.words, 0);
+        int width = next.size.width;
+        int height = next.size.height;
+        int wpr = next.wordsPerRow;
+        long lastMask = -1L >>> (-width & 63);
+        for (Tile t : tileList) {
+            if (t.x < 0 || t.y < 0 || t.x >= wpr || t.y * tileSize >= height) continue;
+            long mask = t.x < wpr - 1 ? -1L : lastMask;
+            for (int r = 0; r < tileSize && t.y * tileSize + r < height; r++) {
+                next.words[(t.y * tileSize + r) * wpr + t.x] = t.cells[r] & mask;
+            }
+        }
+        lastState = next;
+        lastModCount = next.modCount;
+    }
+}
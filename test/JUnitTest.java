@@ -43,6 +43,568 @@ public class JUnitTest {
         System.out.println("GOLPath: "+ GOLPath);
     }
     
+    @Test
+    public void bitwiseEngineMatchesCellwise(){
+        for (int geometry : new int[]{GameModel.Geometry_EuclideanFlat, GameModel.Geometry_EuclideanTorus}) {
+            GameState start = randomState(131, 67, 0.35, 1);
+            GameModel cellwise = modelForState(start, geometry, GameModel.Engine_Cellwise);
+            GameModel bitwise = modelForState(start, geometry, GameModel.Engine_Bitwise);
+            for (int i = 0; i < 30; i++) {
+                cellwise.updateIteration();
+                bitwise.updateIteration();
+                assertEquals(cellwise.getCurrentState(), bitwise.getCurrentState());
+            }
+        }
+    }
+    
+    @Test
+    public void customGeometryIsPluggable(){
+        // A cylinder: columns wrap around, rows end at the top and bottom edges
+        GameModel.GameGeometry cylinder = new GameModel.GameGeometry() {
+            @Override
+            public int wrapColumn(int x, int width) {
+                return (x + width) % width;
+            }
+            @Override
+            public int wrapRow(int y, int height) {
+                return y >= 0 && y < height ? y : -1;
+            }
+        };
+        GameState start = randomState(70, 45, 0.4, 2);
+        GameModel cellwise = modelForState(start, GameModel.Geometry_EuclideanFlat, GameModel.Engine_Cellwise);
+        GameModel bitwise = modelForState(start, GameModel.Geometry_EuclideanFlat, GameModel.Engine_Bitwise);
+        cellwise.setGeometry(cylinder);
+        bitwise.setGeometry(cylinder);
+        assertEquals(GameModel.Geometry_Custom, bitwise.getGeometry());
+        for (int i = 0; i < 30; i++) {
+            cellwise.updateIteration();
+            bitwise.updateIteration();
+            assertEquals(cellwise.getCurrentState(), bitwise.getCurrentState());
+        }
+    }
+    
+    @Test
+    public void parallelEngineMatchesBitwise(){
+        // Large enough to be split into several bands
+        for (int geometry : new int[]{GameModel.Geometry_EuclideanFlat, GameModel.Geometry_EuclideanTorus}) {
+            GameState start = randomState(700, 300, 0.3, 4);
+            GameModel bitwise = modelForState(start, geometry, GameModel.Engine_Bitwise);
+            GameModel parallel = modelForState(start, geometry, GameModel.Engine_Parallel);
+            parallel.setThreadCount(4);
+            for (int i = 0; i < 10; i++) {
+                bitwise.updateIteration();
+                parallel.updateIteration();
+                assertEquals(bitwise.getCurrentState(), parallel.getCurrentState());
+            }
+        }
+    }
+    
+    @Test
+    public void hashLifeMatchesBitwise(){
+        for (int geometry : new int[]{GameModel.Geometry_EuclideanFlat, GameModel.Geometry_EuclideanTorus}) {
+            GameState start = randomState(90, 60, 0.35, 5);
+            GameModel bitwise = modelForState(start, geometry, GameModel.Engine_Bitwise);
+            GameModel hashLife = modelForState(start, geometry, GameModel.Engine_HashLife);
+            for (int i = 0; i < 40; i++) {
+                bitwise.updateIteration();
+                hashLife.updateIteration();
+                assertEquals(bitwise.getCurrentState(), hashLife.getCurrentState());
+            }
+        }
+    }
+    
+    @Test
+    public void hashLifeJumpMatchesStepping(){
+        // An R-pentomino in the middle of a board large enough that it never reaches the edges
+        GameState start = new GameState(240, 240);
+        int[][] rPentomino = {{1,0}, {2,0}, {0,1}, {1,1}, {1,2}};
+        for (int[] cell : rPentomino) {
+            start.setValueAtPoint(true, 120 + cell[0], 120 + cell[1]);
+        }
+        GameModel bitwise = modelForState(start, GameModel.Geometry_EuclideanFlat, GameModel.Engine_Bitwise);
+        GameModel hashLife = modelForState(start, GameModel.Geometry_EuclideanFlat, GameModel.Engine_HashLife);
+        for (int i = 0; i < 128; i++) {
+            bitwise.updateIteration();
+        }
+        hashLife.jump(7);
+        assertEquals(bitwise.getCurrentState(), hashLife.getCurrentState());
+    }
+    
+    @Test
+    public void sparseEngineMatchesBitwise(){
+        for (int geometry : new int[]{GameModel.Geometry_EuclideanFlat, GameModel.Geometry_EuclideanTorus}) {
+            GameState start = randomState(150, 80, 0.25, 6);
+            GameModel bitwise = modelForState(start, geometry, GameModel.Engine_Bitwise);
+            GameModel sparse = modelForState(start, geometry, GameModel.Engine_Sparse);
+            for (int i = 0; i < 60; i++) {
+                if (i == 30) {
+                    // Edits between generations must be picked up
+                    bitwise.getCurrentState().setValueAtPoint(true, 0, 0);
+                    sparse.getCurrentState().setValueAtPoint(true, 0, 0);
+                }
+                bitwise.updateIteration();
+                sparse.updateIteration();
+                assertEquals(bitwise.getCurrentState(), sparse.getCurrentState());
+            }
+        }
+    }
+    
+    @Test
+    public void sparseEngineFollowsGeometryChanges(){
+        assertFollowsGeometryChanges(GameModel.Engine_Sparse);
+    }
+    
+    @Test
+    public void neighbourCountEngineMatchesBitwise(){
+        for (int geometry : new int[]{GameModel.Geometry_EuclideanFlat, GameModel.Geometry_EuclideanTorus}) {
+            GameState start = randomState(130, 70, 0.25, 8);
+            GameModel bitwise = modelForState(start, geometry, GameModel.Engine_Bitwise);
+            GameModel counting = modelForState(start, geometry, GameModel.Engine_NeighbourCount);
+            for (int i = 0; i < 60; i++) {
+                if (i == 30) {
+                    bitwise.getCurrentState().setValueAtPoint(true, 129, 69);
+                    counting.getCurrentState().setValueAtPoint(true, 129, 69);
+                }
+                bitwise.updateIteration();
+                counting.updateIteration();
+                assertEquals(bitwise.getCurrentState(), counting.getCurrentState());
+            }
+        }
+    }
+    
+    @Test
+    public void stableTileEngineMatchesBitwise(){
+        for (int geometry : new int[]{GameModel.Geometry_EuclideanFlat, GameModel.Geometry_EuclideanTorus}) {
+            // Sparse enough to settle into still lifes and blinkers within the run
+            GameState start = randomState(200, 100, 0.1, 10);
+            GameModel bitwise = modelForState(start, geometry, GameModel.Engine_Bitwise);
+            GameModel tiles = modelForState(start, geometry, GameModel.Engine_StableTiles);
+            for (int i = 0; i < 150; i++) {
+                if (i == 120) {
+                    bitwise.getCurrentState().setValueAtPoint(true, 199, 99);
+                    tiles.getCurrentState().setValueAtPoint(true, 199, 99);
+                }
+                bitwise.updateIteration();
+                tiles.updateIteration();
+                assertEquals(bitwise.getCurrentState(), tiles.getCurrentState());
+            }
+        }
+    }
+    
+    @Test
+    public void stableTileEngineFollowsGeometryChanges(){
+        assertFollowsGeometryChanges(GameModel.Engine_StableTiles);
+    }
+    
+    @Test
+    public void vectorEngineMatchesBitwise(){
+        // Without the Vector API this is the bitwise fallback, which must match just the same
+        for (int geometry : new int[]{GameModel.Geometry_EuclideanFlat, GameModel.Geometry_EuclideanTorus}) {
+            GameState start = randomState(1100, 40, 0.3, 9);
+            GameModel bitwise = modelForState(start, geometry, GameModel.Engine_Bitwise);
+            GameModel vector = modelForState(start, geometry, GameModel.Engine_Vector);
+            for (int i = 0; i < 20; i++) {
+                bitwise.updateIteration();
+                vector.updateIteration();
+            }
+            assertEquals(bitwise.getCurrentState(), vector.getCurrentState());
+        }
+    }
+    
+    @Test
+    public void unboundedPlaneMatchesFlatAwayFromEdges(){
+        // A pattern in the middle of the grid behaves as in the flat geometry until it reaches an edge
+        GameState start = new GameState(300, 300);
+        GameState soup = randomState(40, 40, 0.4, 7);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 40; x++) {
+                start.setValueAtPoint(soup.getValueAtPoint(x, y), 130 + x, 130 + y);
+            }
+        }
+        GameModel flat = modelForState(start, GameModel.Geometry_EuclideanFlat, GameModel.Engine_Bitwise);
+        GameModel plane = modelForState(start, GameModel.Geometry_UnboundedPlane, GameModel.Engine_Bitwise);
+        for (int i = 0; i < 100; i++) {
+            flat.updateIteration();
+            plane.updateIteration();
+            assertEquals(flat.getCurrentState(), plane.getCurrentState());
+        }
+    }
+    
+    @Test
+    public void unboundedPlaneKeepsCellsOutsideTheGrid(){
+        // A glider heading up and to the left leaves the grid, but is still stepped by both unbounded engines
+        GameState start = GameState.readStateFromString("-----\n-**--\n-*-*-\n-*---\n-----");
+        GameModel tiled = modelForState(start, GameModel.Geometry_UnboundedPlane, GameModel.Engine_Bitwise);
+        GameModel hashLife = modelForState(start, GameModel.Geometry_UnboundedPlane, GameModel.Engine_HashLife);
+        for (int i = 0; i < 200; i++) {
+            tiled.updateIteration();
+            hashLife.updateIteration();
+            assertEquals(tiled.getCurrentState(), hashLife.getCurrentState());
+        }
+        assertEquals(new GameState(5, 5), tiled.getCurrentState());
+    }
+    
+    @Test
+    public void doubleBufferingKeepsInitialState(){
+        GameState start = randomState(50, 30, 0.3, 3);
+        GameModel model = modelForState(start, GameModel.Geometry_EuclideanTorus, GameModel.Engine_Bitwise);
+        GameState initial = model.getCurrentState();
+        
+        model.updateIteration();
+        GameState first = model.getCurrentState();
+        model.updateIteration();
+        GameState second = model.getCurrentState();
+        model.updateIteration();
+        assertNotSame(first, second);
+        assertSame(first, model.getCurrentState());
+        
+        model.reset();
+        assertSame(initial, model.getCurrentState());
+        assertEquals(start, initial);
+    }
+    
+    @Test
+    public void patternsRoundTripThroughRLEAndPlainText() throws java.io.IOException{
+        GameState start = randomState(150, 40, 0.3, 4);
+        java.io.StringWriter rle = new java.io.StringWriter();
+        PatternIO.writeRLE(start, rle);
+        assertEquals(start, GameState.readStateFromString(rle.toString()));
+        java.io.StringWriter text = new java.io.StringWriter();
+        PatternIO.writePlainText(start, text);
+        assertEquals(start, GameState.readStateFromString(text.toString()));
+        
+        GameState glider = GameState.readStateFromString("#N Glider\nx = 3, y = 3, rule = B3/S23\nbo$2bo$3o!");
+        assertEquals(GameState.readStateFromString("-*-\n--*\n***"), glider);
+    }
+    
+    @Test
+    public void snapshotsRoundTripThroughFiles() throws java.io.IOException{
+        GameState start = randomState(130, 70, 0.3, 5);
+        java.io.File file = java.io.File.createTempFile("board", "." + BoardSnapshot.extension);
+        try {
+            new BoardSnapshot(start, GameModel.Geometry_EuclideanTorus, 1234).write(file);
+            BoardSnapshot read = BoardSnapshot.read(file);
+            assertEquals(start, read.state);
+            assertEquals(GameModel.Geometry_EuclideanTorus, read.geometry);
+            assertEquals(1234, read.generation);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void modelFindsPeriodOfOscillator(){
+        GameState blinker = GameState.readStateFromString("-----\n--*--\n--*--\n--*--\n-----\n");
+        GameModel model = modelForState(blinker, GameModel.Geometry_EuclideanFlat, GameModel.Engine_Bitwise);
+        model.updateIteration();
+        assertEquals(0, model.getPeriod());
+        model.updateIteration();
+        assertEquals(2, model.getPeriod());
+        model.updateIteration();
+        assertEquals(2, model.getPeriod());
+    }
+    
+    @Test
+    public void modelStepsBackThroughHistory(){
+        GameModel model = modelForState(randomState(90, 50, 0.3, 6), GameModel.Geometry_EuclideanTorus, GameModel.Engine_Sparse);
+        java.util.List<String> states = new java.util.ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            states.add(model.getCurrentState().toString());
+            model.updateIteration();
+        }
+        for (int i = 79; i >= 40; i--) {
+            model.stepBack();
+            assertEquals(i, model.getIteration());
+            assertEquals(states.get(i), model.getCurrentState().toString());
+        }
+        model.seek(3);
+        assertEquals(states.get(3), model.getCurrentState().toString());
+        model.seek(71);
+        assertEquals(states.get(71), model.getCurrentState().toString());
+    }
+    
+    @Test
+    public void editsWhileRunningAreShown() throws Exception{
+        GameState block = GameState.readStateFromString("------\n-**---\n-**---\n------\n");
+        GameState blocks = new GameState(100, 40);
+        blocks.setValueAtPoint(true, 1, 1);
+        blocks.setValueAtPoint(true, 2, 1);
+        blocks.setValueAtPoint(true, 1, 2);
+        blocks.setValueAtPoint(true, 2, 2);
+        GameModel model = modelForState(blocks, GameModel.Geometry_EuclideanFlat, GameModel.Engine_Bitwise);
+        model.setSpeed(10000);
+        model.start();
+        // A second block, in another word, which the generations that follow leave alone
+        CellEdits edits = new CellEdits();
+        for (int y = 0; y < block.size.height; y++) {
+            for (int x = 0; x < block.size.width; x++) {
+                if (block.getValueAtPoint(x, y)) edits.add(80 + x, 30 + y, true);
+            }
+        }
+        model.cellsEdited(edits);
+        edits.applyTo(blocks);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!blocks.equals(model.getGrid().getState()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            javax.swing.SwingUtilities.invokeAndWait(() -> {});
+        }
+        model.pause();
+        GameGrid grid = model.getGrid();
+        javax.swing.SwingUtilities.invokeAndWait(() -> {
+            for (int y = 0; y < 40; y++) {
+                for (int x = 0; x < 100; x++) {
+                    assertEquals(blocks.getValueAtPoint(x, y), grid.isShown(x, y));
+                }
+            }
+        });
+    }
+    
+    @Test
+    public void modelSeeksLaterGenerationsOnSimulationThread() throws Exception{
+        GameState start = randomState(90, 50, 0.3, 8);
+        GameModel model = modelForState(start, GameModel.Geometry_EuclideanTorus, GameModel.Engine_Bitwise);
+        GameModel reference = modelForState(start, GameModel.Geometry_EuclideanTorus, GameModel.Engine_Bitwise);
+        for (int i = 0; i < 10; i++) {
+            model.updateIteration();
+        }
+        for (int i = 0; i < 300; i++) {
+            reference.updateIteration();
+        }
+        model.seek(300);
+        GameState[] shown = new GameState[1];
+        waitForGeneration(model, 300);
+        javax.swing.SwingUtilities.invokeAndWait(() -> shown[0] = model.getGrid().getState());
+        assertFalse(model.isRunning());
+        assertEquals(reference.getCurrentState(), shown[0]);
+        assertEquals(reference.getCurrentState(), model.getCurrentState());
+        
+        // A still life skips to any generation
+        GameState block = GameState.readStateFromString("----\n-**-\n-**-\n----\n");
+        GameModel still = modelForState(block, GameModel.Geometry_EuclideanFlat, GameModel.Engine_Bitwise);
+        still.seek(1L << 40);
+        waitForGeneration(still, 1L << 40);
+        assertEquals(block, still.getCurrentState());
+    }
+    
+    /**
+     * Waits for <code>model</code> to show <code>generation</code> and stop
+     */
+    private static void waitForGeneration(GameModel model, long generation) throws Exception{
+        long deadline = System.currentTimeMillis() + 10000;
+        boolean[] there = new boolean[1];
+        while (!there[0] && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            javax.swing.SwingUtilities.invokeAndWait(() -> there[0] = model.getIteration() == generation && !model.isRunning());
+        }
+        assertTrue("generation " + generation + " not reached", there[0]);
+    }
+    
+    @Test
+    public void boardShownAfterResetFollowsSimulation() throws Exception{
+        GameState glider = new GameState(512, 64);
+        glider.setValueAtPoint(true, 61, 1);
+        glider.setValueAtPoint(true, 62, 2);
+        glider.setValueAtPoint(true, 60, 3);
+        glider.setValueAtPoint(true, 61, 3);
+        glider.setValueAtPoint(true, 62, 3);
+        GameModel model = modelForState(glider, GameModel.Geometry_EuclideanTorus, GameModel.Engine_Bitwise);
+        model.setSpeed(10000);
+        // Far enough for the glider to cross into the next word, so frames of it are left in the buffers
+        runUntil(model, 40);
+        model.reset();
+        runUntil(model, 12);
+        long generation = model.getIteration();
+        GameModel reference = modelForState(glider, GameModel.Geometry_EuclideanTorus, GameModel.Engine_Bitwise);
+        for (long i = 0; i < generation; i++) {
+            reference.updateIteration();
+        }
+        GameState[] shown = new GameState[1];
+        javax.swing.SwingUtilities.invokeAndWait(() -> shown[0] = model.getGrid().getState());
+        assertEquals(reference.getCurrentState(), shown[0]);
+    }
+    
+    /**
+     * Runs <code>model</code> until it shows <code>generations</code> generations later, then pauses it, and
+     * waits for the last frame to be shown
+     */
+    private static void runUntil(GameModel model, long generations) throws Exception{
+        long target = model.getIteration() + generations;
+        model.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        long[] shown = new long[1];
+        while (shown[0] < target && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            javax.swing.SwingUtilities.invokeAndWait(() -> shown[0] = model.getIteration());
+        }
+        model.pause();
+        long[] last = {-1};
+        while (last[0] != shown[0] && System.currentTimeMillis() < deadline) {
+            last[0] = shown[0];
+            Thread.sleep(20);
+            javax.swing.SwingUtilities.invokeAndWait(() -> shown[0] = model.getIteration());
+        }
+    }
+    
+    @Test
+    public void enginesAgreeUnderOtherRules(){
+        assertEquals(Rule.highLife, Rule.parse("b36/s23"));
+        assertEquals(Rule.highLife, Rule.parse("23/36"));
+        assertEquals("B3678/S34678", Rule.dayAndNight.toString());
+        GameState start = randomState(97, 61, 0.4, 7);
+        java.util.List<Integer> engines = new java.util.ArrayList<>(java.util.Arrays.asList(
+                GameModel.Engine_Bitwise, GameModel.Engine_Parallel, GameModel.Engine_HashLife,
+                GameModel.Engine_Sparse, GameModel.Engine_NeighbourCount, GameModel.Engine_StableTiles));
+        if (GameModel.isVectorEngineAvailable()) engines.add(GameModel.Engine_Vector);
+        for (Rule rule : new Rule[]{Rule.highLife, Rule.dayAndNight, Rule.seeds}) {
+            for (int geometry : new int[]{GameModel.Geometry_EuclideanFlat, GameModel.Geometry_EuclideanTorus}) {
+                GameModel reference = modelForState(start, geometry, GameModel.Engine_Cellwise);
+                reference.setRule(rule);
+                for (int i = 0; i < 20; i++) {
+                    reference.updateIteration();
+                }
+                for (int engine : engines) {
+                    GameModel other = modelForState(start, geometry, engine);
+                    other.setRule(rule);
+                    for (int i = 0; i < 20; i++) {
+                        other.updateIteration();
+                    }
+                    assertEquals("engine " + engine, reference.getCurrentState(), other.getCurrentState());
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void batchRunnerRejectsBadArguments(){
+        String[][] rejected = {
+            {"pattern.txt", "-n"},
+            {"-n", "-5", "pattern.txt"},
+            {"-threads", "0", "pattern.txt"},
+            {"-engine", "quantum", "pattern.txt"},
+            {"-geometry", "sphere", "pattern.txt"},
+            {"-n", "10"}
+        };
+        for (String[] args : rejected) {
+            try {
+                new BatchRunner().parseArguments(args);
+                fail("Accepted " + String.join(" ", args));
+            } catch (IllegalArgumentException e) {
+            }
+        }
+        new BatchRunner().parseArguments(new String[]{"-n", "10", "-engine", "sparse", "-geometry", "torus",
+                "-threads", "2", "-cycles", "skip", "pattern.txt"});
+    }
+    
+    @Test
+    public void batchRunnerActsOnCycles(){
+        String blinker = "-----\n--*--\n--*--\n--*--\n-----\n";
+        Simulation stepped = batchSimulation(blinker);
+        long firstRepeat = 0;
+        do {
+            stepped.step();
+            firstRepeat++;
+        } while (stepped.getPeriod() == 0);
+        
+        Simulation stopping = batchSimulation(blinker);
+        assertEquals(firstRepeat, BatchRunner.advance(stopping, 1000, BatchRunner.Cycles_Stop));
+        assertEquals(firstRepeat, stopping.getGeneration());
+        
+        for (long generations : new long[]{1000, 1001}) {
+            Simulation skipping = batchSimulation(blinker);
+            assertEquals(generations, BatchRunner.advance(skipping, generations, BatchRunner.Cycles_Skip));
+            assertEquals(generations, skipping.getGeneration());
+            Simulation ignoring = batchSimulation(blinker);
+            assertEquals(generations, BatchRunner.advance(ignoring, generations, BatchRunner.Cycles_Ignore));
+            assertEquals(ignoring.getCurrentState(), skipping.getCurrentState());
+        }
+    }
+    
+    @Test
+    public void liveCellsAreVisitedByIndex(){
+        GameState state = randomState(150, 40, 0.2, 11);
+        ByteGrid visited = new ByteGrid(state.size);
+        int count = 0;
+        for (int i = state.nextLiveCell(0); i >= 0; i = state.nextLiveCell(i + 1)) {
+            visited.addAtIndex(1, i);
+            count++;
+        }
+        assertEquals(state.countLiveCells(), count);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 150; x++) {
+                assertEquals(state.getValueAtPoint(x, y) ? 1 : 0, visited.getValueAtPoint(x, y));
+            }
+        }
+        
+        Grid<String> grid = new Grid<>(3, 2);
+        grid.setValueAtPoint("a", 2, 1);
+        assertEquals("a", grid.getValueAtIndex(grid.index(2, 1)));
+    }
+    
+    private static GameState randomState(int width, int height, double density, long seed){
+        java.util.Random random = new java.util.Random(seed);
+        GameState out = new GameState(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                out.setValueAtPoint(random.nextDouble() < density, x, y);
+            }
+        }
+        return out;
+    }
+    
+    /**
+     * @return a simulation of the pattern on a flat grid, stepped cell by cell and detecting cycles
+     */
+    private static Simulation batchSimulation(String pattern){
+        GameModel.GameGeometry flat = new GameModel.GameGeometry() {
+            @Override
+            public int wrapColumn(int x, int width) {
+                return x >= 0 && x < width ? x : -1;
+            }
+            @Override
+            public int wrapRow(int y, int height) {
+                return y >= 0 && y < height ? y : -1;
+            }
+        };
+        Simulation out = new Simulation(GameState.readStateFromString(pattern), flat,
+                (current, next, geo) -> current.getNextGenerationState(geo, next));
+        out.setDetectsCycles(true);
+        return out;
+    }
+    
+    /**
+     * Steps blocks against opposite edges, which are still on the flat grid but meet on the torus, switching
+     * from one geometry to the other part way through
+     */
+    private static void assertFollowsGeometryChanges(int engine){
+        GameState start = new GameState(130, 70);
+        for (int[] cell : new int[][]{{0, 20}, {1, 20}, {0, 21}, {1, 21}, {128, 20}, {129, 20}, {128, 21}, {129, 21},
+                                      {50, 0}, {51, 0}, {50, 1}, {51, 1}, {50, 68}, {51, 68}, {50, 69}, {51, 69}}) {
+            start.setValueAtPoint(true, cell[0], cell[1]);
+        }
+        GameModel bitwise = modelForState(start, GameModel.Geometry_EuclideanFlat, GameModel.Engine_Bitwise);
+        GameModel other = modelForState(start, GameModel.Geometry_EuclideanFlat, engine);
+        for (int i = 0; i < 40; i++) {
+            if (i == 10) {
+                bitwise.setGeometry(GameModel.Geometry_EuclideanTorus);
+                other.setGeometry(GameModel.Geometry_EuclideanTorus);
+            }
+            if (i == 25) {
+                bitwise.setGeometry(GameModel.Geometry_EuclideanFlat);
+                other.setGeometry(GameModel.Geometry_EuclideanFlat);
+            }
+            bitwise.updateIteration();
+            other.updateIteration();
+            assertEquals("generation " + i, bitwise.getCurrentState(), other.getCurrentState());
+        }
+    }
+    
+    private static GameModel modelForState(GameState state, int geometry, int engine){
+        GameModel model = new GameModel(state.size);
+        model.setGeometry(geometry);
+        model.setEngine(engine);
+        model.loadState(GameState.readStateFromString(state.toString()));
+        return model;
+    }
 
     // TODO add test methods here.
     // The methods must be annotated with annotation @Test. For example: